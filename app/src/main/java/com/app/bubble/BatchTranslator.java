@@ -0,0 +1,221 @@
+package com.app.bubble;
+
+import java.nio.charset.Charset;
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Translates many segments in as few requests as possible.
+ *
+ * Segments are packed, newline-separated, into chunks of at most {@code maxChunkBytes} of UTF-8.
+ * A segment too big for one chunk (a long paragraph from ADD PAGE) is cut at sentence boundaries,
+ * or hard-cut if a single sentence is still too big, and its pieces are put back together after
+ * translation. Up to {@link #MAX_PARALLEL_CHUNKS} chunks are in flight at once; results come back in
+ * segment order whatever order the chunks finish in.
+ *
+ * Blocking; call it off the main thread.
+ */
+public class BatchTranslator {
+
+    // Default request size; large enough for a screenful, small enough to come back quickly.
+    public static final int DEFAULT_CHUNK_BYTES = 4500;
+    // Parallel requests; more than this and the endpoint starts throttling.
+    static final int MAX_PARALLEL_CHUNKS = 3;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // A piece of one segment, translated as one line of a chunk.
+    private static final class Piece {
+        final int segment;
+        final String text;
+
+        Piece(int segment, String text) {
+            this.segment = segment;
+            this.text = text;
+        }
+    }
+
+    // Swapped when the translation settings change; a batch in flight finishes with either.
+    private volatile TranslationProvider provider;
+    private final int maxChunkBytes;
+    private final ExecutorService requests = Executors.newFixedThreadPool(MAX_PARALLEL_CHUNKS);
+
+    public BatchTranslator(TranslationProvider provider, int maxChunkBytes) {
+        this.provider = provider;
+        this.maxChunkBytes = maxChunkBytes;
+    }
+
+    /**
+     * @param segments Single-line segments to translate.
+     * @param cancellation Aborts every request of the batch when cancelled, or null.
+     * @return One translation per segment, in order, or null if any request failed.
+     */
+    public String[] translate(final String sourceLang, final String targetLang, List<String> segments,
+                              final CancellationToken cancellation) {
+        List<Piece> pieces = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            for (String text : split(segments.get(i), sourceLang)) pieces.add(new Piece(i, text));
+        }
+
+        List<Future<String[]>> pending = new ArrayList<>();
+        List<List<Piece>> chunks = pack(pieces);
+        for (final List<Piece> chunk : chunks) {
+            pending.add(requests.submit(() -> translateChunk(sourceLang, targetLang, chunk, cancellation)));
+        }
+
+        StringBuilder[] results = new StringBuilder[segments.size()];
+        try {
+            for (int c = 0; c < chunks.size(); c++) {
+                String[] translated = pending.get(c).get();
+                if (translated == null) {
+                    cancel(pending);
+                    return null;
+                }
+                List<Piece> chunk = chunks.get(c);
+                for (int p = 0; p < chunk.size(); p++) {
+                    int segment = chunk.get(p).segment;
+                    if (results[segment] == null) {
+                        results[segment] = new StringBuilder(translated[p]);
+                    } else {
+                        results[segment].append(' ').append(translated[p]);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // Superseded by a newer translation; the chunks still queued are not worth sending.
+            cancel(pending);
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            e.printStackTrace();
+            cancel(pending);
+            return null;
+        }
+
+        String[] translations = new String[segments.size()];
+        for (int i = 0; i < translations.length; i++) {
+            translations[i] = (results[i] != null) ? results[i].toString() : "";
+        }
+        return translations;
+    }
+
+    public void setProvider(TranslationProvider provider) {
+        this.provider = provider;
+    }
+
+    public void shutdown() {
+        requests.shutdownNow();
+    }
+
+    // Sends one chunk. If the service merged or split lines somewhere, the chunk is cut in half and
+    // both halves are retried in parallel, down to single pieces around the line that caused it.
+    private String[] translateChunk(final String sourceLang, final String targetLang, final List<Piece> chunk,
+                                    final CancellationToken cancellation) throws Exception {
+        StringBuilder request = new StringBuilder();
+        for (Piece piece : chunk) {
+            if (request.length() > 0) request.append('\n');
+            request.append(piece.text);
+        }
+        String response = provider.translate(sourceLang, targetLang, request.toString(), cancellation);
+        if (response == null) return null;
+
+        String[] lines = response.split("\n", -1);
+        if (lines.length != chunk.size()) {
+            // A single piece is a single line, whatever the service did to it.
+            if (chunk.size() == 1) return new String[] {response.replace('\n', ' ').trim()};
+
+            int middle = chunk.size() / 2;
+            FutureTask<String[]> tail = new FutureTask<>(
+                    () -> translateChunk(sourceLang, targetLang, chunk.subList(middle, chunk.size()), cancellation));
+            requests.execute(tail);
+            String[] head = translateChunk(sourceLang, targetLang, chunk.subList(0, middle), cancellation);
+            // If the pool is busy (possibly with chunks waiting like this one), run the tail here.
+            tail.run();
+            String[] rest = tail.get();
+            if (head == null || rest == null) return null;
+            lines = new String[chunk.size()];
+            System.arraycopy(head, 0, lines, 0, head.length);
+            System.arraycopy(rest, 0, lines, head.length, rest.length);
+            return lines;
+        }
+        for (int i = 0; i < lines.length; i++) lines[i] = lines[i].trim();
+        return lines;
+    }
+
+    // Greedy packing in order; every chunk stays within the byte budget.
+    private List<List<Piece>> pack(List<Piece> pieces) {
+        List<List<Piece>> chunks = new ArrayList<>();
+        List<Piece> chunk = new ArrayList<>();
+        int chunkBytes = 0;
+        for (Piece piece : pieces) {
+            int bytes = byteLength(piece.text) + 1; // With its newline.
+            if (!chunk.isEmpty() && chunkBytes + bytes > maxChunkBytes) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                chunkBytes = 0;
+            }
+            chunk.add(piece);
+            chunkBytes += bytes;
+        }
+        if (!chunk.isEmpty()) chunks.add(chunk);
+        return chunks;
+    }
+
+    // Cuts a segment that does not fit in a chunk at sentence boundaries.
+    List<String> split(String segment, String sourceLang) {
+        List<String> pieces = new ArrayList<>();
+        if (byteLength(segment) < maxChunkBytes) {
+            pieces.add(segment);
+            return pieces;
+        }
+
+        BreakIterator sentences = BreakIterator.getSentenceInstance(new Locale(sourceLang));
+        sentences.setText(segment);
+        StringBuilder piece = new StringBuilder();
+        int start = sentences.first();
+        for (int end = sentences.next(); end != BreakIterator.DONE; start = end, end = sentences.next()) {
+            String sentence = segment.substring(start, end);
+            if (piece.length() > 0 && byteLength(piece) + byteLength(sentence) >= maxChunkBytes) {
+                pieces.add(piece.toString().trim());
+                piece.setLength(0);
+            }
+            if (byteLength(sentence) >= maxChunkBytes) {
+                hardSplit(sentence, pieces);
+            } else {
+                piece.append(sentence);
+            }
+        }
+        if (piece.toString().trim().length() > 0) pieces.add(piece.toString().trim());
+        return pieces;
+    }
+
+    // Last resort for a single sentence over budget: cut at spaces (or anywhere) by size.
+    private void hardSplit(String sentence, List<String> pieces) {
+        int start = 0;
+        while (start < sentence.length()) {
+            // 4 bytes covers the widest UTF-8 code point, so this many chars always fits.
+            int end = Math.min(sentence.length(), start + maxChunkBytes / 4);
+            if (end < sentence.length()) {
+                int space = sentence.lastIndexOf(' ', end);
+                if (space > start) end = space;
+                if (Character.isHighSurrogate(sentence.charAt(end - 1))) end--;
+            }
+            String piece = sentence.substring(start, end).trim();
+            if (!piece.isEmpty()) pieces.add(piece);
+            start = end;
+        }
+    }
+
+    private static void cancel(List<Future<String[]>> pending) {
+        for (Future<String[]> future : pending) future.cancel(true);
+    }
+
+    private static int byteLength(CharSequence text) {
+        return text.toString().getBytes(UTF_8).length;
+    }
+}
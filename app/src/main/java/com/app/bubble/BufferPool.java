@@ -0,0 +1,187 @@
+package com.app.bubble;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A shared pool of bitmaps and pixel arrays, so capture, stitching and OCR preparation can
+ * reuse the same buffers instead of allocating full-screen images on every frame.
+ *
+ * Buffers are keyed by their exact dimensions (and config for bitmaps). Acquired buffers are NOT
+ * cleared; callers are expected to overwrite every pixel they read back.
+ */
+public final class BufferPool {
+
+    // Keep at most this many idle buffers of one shape...
+    private static final int MAX_PER_KEY = 3;
+    // ...and never hold more than this many idle bytes in total.
+    private static final long MAX_POOLED_BYTES = 48L * 1024 * 1024;
+    // Rows copied per step when cropping, so cropping never needs a full-size pixel array.
+    private static final int CROP_BAND_ROWS = 64;
+
+    private static final BufferPool sInstance = new BufferPool();
+
+    private final Map<Long, ArrayDeque<Bitmap>> bitmaps = new HashMap<>();
+    private final Map<Integer, ArrayDeque<int[]>> intArrays = new HashMap<>();
+    private final Map<Integer, ArrayDeque<byte[]>> byteArrays = new HashMap<>();
+    private long pooledBytes = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    private BufferPool() {}
+
+    public static BufferPool get() { return sInstance; }
+
+    /**
+     * Returns a mutable bitmap of the given shape, reused if one is available.
+     */
+    public Bitmap acquireBitmap(int width, int height, Bitmap.Config config) {
+        synchronized (this) {
+            ArrayDeque<Bitmap> free = bitmaps.get(bitmapKey(width, height, config));
+            while (free != null && !free.isEmpty()) {
+                Bitmap bitmap = free.pop();
+                pooledBytes -= bitmap.getAllocationByteCount();
+                if (!bitmap.isRecycled()) {
+                    hits++;
+                    return bitmap;
+                }
+            }
+            misses++;
+        }
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * Hands a bitmap back to the pool. The caller must not touch it afterwards.
+     */
+    public void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) return;
+        long key = bitmapKey(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+        int bytes = bitmap.getAllocationByteCount();
+        synchronized (this) {
+            ArrayDeque<Bitmap> free = bitmaps.get(key);
+            if (free == null) {
+                free = new ArrayDeque<>();
+                bitmaps.put(key, free);
+            }
+            if (free.size() < MAX_PER_KEY && pooledBytes + bytes <= MAX_POOLED_BYTES) {
+                free.push(bitmap);
+                pooledBytes += bytes;
+                return;
+            }
+        }
+        bitmap.recycle();
+    }
+
+    /**
+     * Returns an int array of exactly the given length, reused if one is available.
+     */
+    public int[] acquireInts(int length) {
+        synchronized (this) {
+            ArrayDeque<int[]> free = intArrays.get(length);
+            if (free != null && !free.isEmpty()) {
+                pooledBytes -= length * 4L;
+                hits++;
+                return free.pop();
+            }
+            misses++;
+        }
+        return new int[length];
+    }
+
+    public void release(int[] array) {
+        if (array == null) return;
+        synchronized (this) {
+            ArrayDeque<int[]> free = intArrays.get(array.length);
+            if (free == null) {
+                free = new ArrayDeque<>();
+                intArrays.put(array.length, free);
+            }
+            if (free.size() < MAX_PER_KEY && pooledBytes + array.length * 4L <= MAX_POOLED_BYTES) {
+                free.push(array);
+                pooledBytes += array.length * 4L;
+            }
+        }
+    }
+
+    /**
+     * Returns a byte array of exactly the given length, reused if one is available.
+     */
+    public byte[] acquireBytes(int length) {
+        synchronized (this) {
+            ArrayDeque<byte[]> free = byteArrays.get(length);
+            if (free != null && !free.isEmpty()) {
+                pooledBytes -= length;
+                hits++;
+                return free.pop();
+            }
+            misses++;
+        }
+        return new byte[length];
+    }
+
+    public void release(byte[] array) {
+        if (array == null) return;
+        synchronized (this) {
+            ArrayDeque<byte[]> free = byteArrays.get(array.length);
+            if (free == null) {
+                free = new ArrayDeque<>();
+                byteArrays.put(array.length, free);
+            }
+            if (free.size() < MAX_PER_KEY && pooledBytes + array.length <= MAX_POOLED_BYTES) {
+                free.push(array);
+                pooledBytes += array.length;
+            }
+        }
+    }
+
+    /**
+     * Copies a region of a bitmap into a pooled bitmap, band by band.
+     * Replaces Bitmap.createBitmap(source, x, y, w, h), which always allocates.
+     */
+    public Bitmap copyRegion(Bitmap source, int x, int y, int width, int height) {
+        Bitmap target = acquireBitmap(width, height, Bitmap.Config.ARGB_8888);
+        int bandRows = Math.min(height, CROP_BAND_ROWS);
+        int[] band = acquireInts(width * bandRows);
+        for (int row = 0; row < height; row += bandRows) {
+            int rows = Math.min(bandRows, height - row);
+            source.getPixels(band, 0, width, x, y + row, width, rows);
+            target.setPixels(band, 0, width, 0, row, width, rows);
+        }
+        release(band);
+        return target;
+    }
+
+    /**
+     * Drops every idle buffer, e.g. when the system is low on memory.
+     */
+    public void trim() {
+        synchronized (this) {
+            for (ArrayDeque<Bitmap> free : bitmaps.values()) {
+                for (Bitmap bitmap : free) bitmap.recycle();
+            }
+            bitmaps.clear();
+            intArrays.clear();
+            byteArrays.clear();
+            pooledBytes = 0;
+        }
+    }
+
+    public synchronized long getHitCount() { return hits; }
+
+    public synchronized long getMissCount() { return misses; }
+
+    @Override
+    public synchronized String toString() {
+        return "BufferPool hits=" + hits + " misses=" + misses + " pooledBytes=" + pooledBytes;
+    }
+
+    private static long bitmapKey(int width, int height, Bitmap.Config config) {
+        int configIndex = (config == null) ? 0 : config.ordinal() + 1;
+        return ((long) width << 32) | ((long) height << 8) | configIndex;
+    }
+}
@@ -0,0 +1,73 @@
+package com.app.bubble;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lets whoever started a piece of work abort it, including network calls blocked in a read, which
+ * thread interrupts cannot reach.
+ *
+ * Work that can be aborted registers a listener for as long as it runs; {@link #cancel()} calls
+ * every registered listener once. A listener registered after cancellation runs straight away.
+ */
+public final class CancellationToken {
+
+    public interface Listener {
+        void onCancel();
+    }
+
+    // Guarded by this.
+    private boolean cancelled = false;
+    private final List<Listener> listeners = new ArrayList<>();
+    // Set for tokens made by child().
+    private CancellationToken parent;
+    private Listener parentListener;
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void cancel() {
+        List<Listener> toNotify;
+        synchronized (this) {
+            if (cancelled) return;
+            cancelled = true;
+            toNotify = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+        for (Listener listener : toNotify) listener.onCancel();
+    }
+
+    public void register(Listener listener) {
+        synchronized (this) {
+            if (!cancelled) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.onCancel();
+    }
+
+    public synchronized void unregister(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * A token that is cancelled together with this one but can also be cancelled on its own, e.g.
+     * for one of several requests made on this token's behalf. Release it when done.
+     */
+    public CancellationToken child() {
+        CancellationToken child = new CancellationToken();
+        child.parentListener = child::cancel;
+        child.parent = this;
+        register(child.parentListener);
+        return child;
+    }
+
+    /**
+     * Detaches a token made by {@link #child()} from its parent.
+     */
+    public void release() {
+        if (parent != null) parent.unregister(parentListener);
+    }
+}
@@ -0,0 +1,88 @@
+package com.app.bubble;
+
+import java.util.Arrays;
+
+/**
+ * Picks the resolution the screen is mirrored at for OCR.
+ *
+ * ML Kit reads normal-size text fine at well below native resolution, so the capture is scaled down
+ * until recognized lines are about {@link #TARGET_LINE_HEIGHT} pixels tall. The text height is
+ * estimated from the line boxes of recent OCR results (in full-resolution pixels), since the scale
+ * has to be chosen before the selection is captured; the capture itself can then be measured and
+ * checked with {@link #scaleFor(float)}. The scale is quantized to a few steps so the virtual
+ * display is not rebuilt for every small change.
+ */
+public class CaptureScalePolicy {
+
+    /** Value stored in settings to let the policy choose the scale automatically. */
+    public static final float AUTO = 0f;
+
+    // Line box height (capture pixels) that recognizes reliably.
+    private static final float TARGET_LINE_HEIGHT = 28f;
+    private static final float[] SCALE_STEPS = {0.5f, 0.75f, 1f};
+    // Number of recent line heights the estimate is based on.
+    private static final int HISTORY = 32;
+
+    private final float[] lineHeights = new float[HISTORY];
+    private int recorded = 0;
+    private float fixedScale = AUTO;
+
+    /**
+     * @param scale A fixed scale in (0, 1], or {@link #AUTO}.
+     */
+    public synchronized void setFixedScale(float scale) {
+        fixedScale = (scale > 0f && scale <= 1f) ? scale : AUTO;
+    }
+
+    /**
+     * Records the height of one recognized line, converted back to full-resolution pixels.
+     */
+    public synchronized void recordLineHeight(float fullResolutionHeight) {
+        if (fullResolutionHeight <= 0f) return;
+        lineHeights[recorded % HISTORY] = fullResolutionHeight;
+        recorded++;
+    }
+
+    /**
+     * Starts the estimate from a line height remembered from an earlier session, so the first
+     * capture does not have to run at full resolution. Ignored once lines have been recorded.
+     */
+    public synchronized void seedLineHeight(float fullResolutionHeight) {
+        if (recorded == 0) recordLineHeight(fullResolutionHeight);
+    }
+
+    /**
+     * The scale the next capture should use.
+     */
+    public synchronized float currentScale() {
+        return scaleFor(typicalLineHeight());
+    }
+
+    /**
+     * The scale for text of the given height in full-resolution pixels (0 if unknown), such as an
+     * estimate measured on the selected region itself.
+     */
+    public synchronized float scaleFor(float lineHeight) {
+        if (fixedScale != AUTO) return fixedScale;
+        if (lineHeight <= 0f) return 1f; // Nothing known yet: stay at full resolution.
+
+        // Smallest step that still keeps those lines at the target height.
+        float wanted = TARGET_LINE_HEIGHT / lineHeight;
+        for (float step : SCALE_STEPS) {
+            if (step >= wanted) return step;
+        }
+        return 1f;
+    }
+
+    /**
+     * Height of the smaller lines seen recently, in full-resolution pixels, or 0 if unknown.
+     * The lower quartile rather than the median, so the smaller text on screen stays readable too.
+     */
+    public synchronized float typicalLineHeight() {
+        if (recorded == 0) return 0f;
+        int count = Math.min(recorded, HISTORY);
+        float[] sorted = Arrays.copyOf(lineHeights, count);
+        Arrays.sort(sorted);
+        return sorted[count / 4];
+    }
+}
@@ -27,6 +27,10 @@ public class CropSelectionView extends View {
     private int screenHeight;
     private int screenWidth;
     private static final int SCROLL_THRESHOLD = 150; // Pixels from bottom to trigger scroll
+    private static final float BORDER_WIDTH = 5f;
+
+    // While auto-scrolling the service is capturing this area, so only the border is drawn.
+    private boolean isAutoScrolling = false;
 
     public CropSelectionView(Context context) {
         super(context);
@@ -44,7 +48,7 @@ public class CropSelectionView extends View {
 
         borderPaint = new Paint();
         borderPaint.setColor(Color.BLUE);
-        borderPaint.setStrokeWidth(5f);
+        borderPaint.setStrokeWidth(BORDER_WIDTH);
         borderPaint.setStyle(Paint.Style.STROKE);
 
         // Read settings
@@ -102,8 +106,8 @@ public class CropSelectionView extends View {
         super.onDraw(canvas);
         selectionRect = getNormalizedRect();
         
-        // Draw the blue fill
-        canvas.drawRect(selectionRect, paint);
+        // Draw the blue fill (skipped during burst capture so it does not tint the frames)
+        if (!isAutoScrolling) canvas.drawRect(selectionRect, paint);
         // Draw the border
         canvas.drawRect(selectionRect, borderPaint);
     }
@@ -132,9 +136,11 @@ public class CropSelectionView extends View {
                     
                     // Trigger continuous smooth scrolling
                     GlobalScrollService.startSmoothScroll();
+                    setAutoScrolling(true);
                 } else {
                     // Stop scrolling if finger moves away from edge
                     GlobalScrollService.stopScroll();
+                    setAutoScrolling(false);
                 }
 
                 resetAutoCloseTimer();
@@ -144,6 +150,7 @@ public class CropSelectionView extends View {
             case MotionEvent.ACTION_UP:
                 // Stop scrolling immediately when finger lifts
                 GlobalScrollService.stopScroll();
+                setAutoScrolling(false);
                 return true;
 
             case MotionEvent.ACTION_CANCEL:
@@ -152,12 +159,42 @@ public class CropSelectionView extends View {
                 // We MUST stop scrolling logic, but we MUST NOT reset coordinates.
                 // Just stop the timer and the scroll service.
                 GlobalScrollService.stopScroll();
+                setAutoScrolling(false);
                 autoCloseHandler.removeCallbacks(autoCloseRunnable);
                 return true;
         }
         return false;
     }
 
+    // Tells the service to start or stop sampling frames for the burst capture.
+    private void setAutoScrolling(boolean scrolling) {
+        if (scrolling == isAutoScrolling) return;
+        isAutoScrolling = scrolling;
+        try {
+            FloatingTranslatorService service = (FloatingTranslatorService) getContext();
+            if (scrolling) {
+                RectF normalized = getNormalizedRect();
+                if (normalized.width() < 10) {
+                    normalized.left = 0;
+                    normalized.right = screenWidth;
+                }
+                // Stay inside the border so it never ends up in the captured frames.
+                int inset = (int) Math.ceil(BORDER_WIDTH);
+                Rect region = new Rect(
+                    (int) normalized.left + inset,
+                    (int) normalized.top + inset,
+                    (int) normalized.right - inset,
+                    screenHeight - inset
+                );
+                service.onAutoScrollStarted(region);
+            } else {
+                service.onAutoScrollStopped();
+            }
+        } catch (ClassCastException e) {
+            e.printStackTrace();
+        }
+    }
+
     private void resetAutoCloseTimer() {
         autoCloseHandler.removeCallbacks(autoCloseRunnable);
         autoCloseHandler.postDelayed(autoCloseRunnable, timeoutDuration);
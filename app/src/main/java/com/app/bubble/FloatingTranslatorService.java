@@ -14,10 +14,7 @@ import android.content.SharedPreferences;
 import android.graphics.Bitmap;
 import android.graphics.PixelFormat;
 import android.graphics.Rect;
-import android.hardware.display.DisplayManager;
-import android.hardware.display.VirtualDisplay;
 import android.media.Image;
-import android.media.ImageReader;
 import android.media.projection.MediaProjection;
 import android.media.projection.MediaProjectionManager;
 import android.os.Build;
@@ -43,20 +40,11 @@ import com.google.android.gms.ads.AdRequest;
 import com.google.android.gms.ads.AdView;
 import com.google.android.gms.ads.MobileAds;
 
-import com.google.android.gms.tasks.OnFailureListener;
-import com.google.android.gms.tasks.OnSuccessListener;
-import com.google.android.gms.tasks.Tasks;
-import com.google.mlkit.vision.common.InputImage;
-import com.google.mlkit.vision.text.Text;
-import com.google.mlkit.vision.text.TextRecognition;
-import com.google.mlkit.vision.text.TextRecognizer;
-import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
-
-import java.nio.ByteBuffer;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -84,13 +72,37 @@ public class FloatingTranslatorService extends Service {
 
     // --- LOGIC VARS ---
     private ExecutorService executor = Executors.newSingleThreadExecutor();
+    // Translations get their own thread so they never wait behind OCR or a refine stream.
+    private final ExecutorService translationExecutor = Executors.newSingleThreadExecutor();
     private Handler handler = new Handler(Looper.getMainLooper());
     
     private String latestOcrText = ""; 
     private String latestTranslation = "";
     
     // Manual Copy Accumulator
-    private StringBuilder globalTextAccumulator = new StringBuilder();
+    // Pages overlap where the user scrolled; only lines not already collected are kept.
+    private final PageAccumulator pageAccumulator = new PageAccumulator();
+    // ADD PAGE captures are read in the background and accumulated in tap order.
+    private PagePipeline pagePipeline;
+    // One warm OCR client per script, shared by every capture path.
+    private final TextRecognizerRegistry recognizers = new TextRecognizerRegistry();
+    // Recognition with a cache in front, so re-capturing the same region is instant.
+    private final OcrEngine ocrEngine = new OcrEngine(recognizers);
+    private final TiledOcr tiledOcr = new TiledOcr(ocrEngine);
+    // Burst captures are recognized strip by strip while they are being stitched.
+    private IncrementalOcr incrementalOcr;
+    private boolean isIncrementalOcrActive = false;
+    // Lines of the current burst recognized so far, shown (translated) before the burst ends.
+    private final List<OcrLine> burstLines = new ArrayList<>();
+    // Translations already fetched, kept across restarts so re-reading a screen skips the network.
+    private TranslationCache translationCache;
+    // Only lines not translated before go to the network.
+    private SegmentTranslator segmentTranslator;
+    // Only the newest translation request reaches the popup.
+    private TranslationScheduler translationScheduler;
+    private BatchTranslator batchTranslator;
+    // Set only when hedged translation is enabled in settings.
+    private HedgedTranslationProvider hedgedProvider;
 
     // Languages
     private String[] languages = {"English", "Spanish", "French", "German", "Hindi", "Bengali", "Marathi", "Telugu", "Tamil", "Malayalam"};
@@ -101,16 +113,34 @@ public class FloatingTranslatorService extends Service {
     // Screen Capture
     private MediaProjectionManager mediaProjectionManager;
     private MediaProjection mediaProjection;
-    private VirtualDisplay virtualDisplay;
-    private ImageReader imageReader;
+    private ScreenCaptureSession captureSession;
     private int screenWidth, screenHeight, screenDensity;
+    // OCR does not need native resolution; the mirror runs as small as the text allows.
+    private final CaptureScalePolicy scalePolicy = new CaptureScalePolicy();
+    // Image cleanup before OCR, chosen separately for bubble captures and ADD PAGE captures.
+    // Off unless picked in Settings; followed while the service runs.
+    private volatile OcrPreprocessor.Mode bubbleOcrMode = OcrPreprocessor.Mode.OFF;
+    private volatile OcrPreprocessor.Mode pageOcrMode = OcrPreprocessor.Mode.OFF;
+    private SharedPreferences prefs;
+    // Held in a field: SharedPreferences only keeps a weak reference to its listeners.
+    private final SharedPreferences.OnSharedPreferenceChangeListener settingsListener =
+            (changed, key) -> onSettingChanged(key);
 
     // Legacy Burst Capture (Used by Blue Bubble internally)
-    private List<Bitmap> capturedBitmaps = new ArrayList<>();
+    // Frames are stitched as they arrive instead of being collected and merged at the end.
+    private StitchSession stitchSession;
     private boolean isBurstMode = false;
     private long lastCaptureTime = 0;
-    private static final long CAPTURE_INTERVAL_MS = 400; 
+    // Sampling interval while auto-scrolling. GlobalScrollService moves the page about a fifth of
+    // the screen per swipe, so this keeps plenty of overlap between neighbouring frames.
+    private static final long CAPTURE_INTERVAL_MS = 150;
+    private boolean isBurstTicking = false;
     private Rect currentCropRect;
+    // Scale of the frames in the current stitch session; fixed for the whole burst. Written on the
+    // capture thread, read on the main thread.
+    private volatile float stitchScale = 1f;
+    // Text height measured on the last single capture (full-resolution pixels), 0 if not measured.
+    private volatile float selectionLineHeight = 0f;
 
     @Override
     public IBinder onBind(Intent intent) { return null; }
@@ -133,6 +163,39 @@ public class FloatingTranslatorService extends Service {
         screenHeight = metrics.heightPixels;
         screenDensity = metrics.densityDpi;
 
+        stitchSession = new StitchSession(getCacheDir());
+        incrementalOcr = new IncrementalOcr(ocrEngine, handler);
+        stitchSession.setStripListener(incrementalOcr);
+        prefs = getSharedPreferences(SettingsActivity.PREFS_NAME, Context.MODE_PRIVATE);
+        scalePolicy.seedLineHeight(prefs.getFloat(SettingsActivity.KEY_LINE_HEIGHT, 0f));
+        applySettings();
+        prefs.registerOnSharedPreferenceChangeListener(settingsListener);
+        recognizers.prewarm();
+        translationCache = new TranslationCache(new File(getFilesDir(), "translations.log"));
+        batchTranslator = new BatchTranslator(translationProvider(prefs), BatchTranslator.DEFAULT_CHUNK_BYTES);
+        segmentTranslator = new SegmentTranslator(translationCache, batchTranslator);
+        translationScheduler = new TranslationScheduler(handler, translationExecutor, segmentTranslator,
+                new TranslationScheduler.Listener() {
+                    @Override
+                    public void onTranslated(String translation) {
+                        latestTranslation = translation;
+                        // A burst updates the open popup as more of it is translated.
+                        TextView shown = (popupView != null) ? popupView.findViewById(R.id.popup_translated_text) : null;
+                        if (shown != null) {
+                            shown.setText(latestTranslation);
+                        } else {
+                            showResultPopup(); // SHOW THE POPUP
+                        }
+                    }
+
+                    @Override
+                    public void onFailed() {
+                        Toast.makeText(FloatingTranslatorService.this, "Translation Failed", Toast.LENGTH_SHORT).show();
+                    }
+                });
+        pagePipeline = new PagePipeline(handler, ocrEngine,
+                (sequence, lines, scale) -> accumulatePage(lines, scale));
+
         showFloatingBubble();
         setupCloseTarget();
     }
@@ -151,9 +214,15 @@ public class FloatingTranslatorService extends Service {
                         public void onStop() {
                             super.onStop();
                             mediaProjection = null;
-                            if (imageReader != null) imageReader.close();
+                            if (captureSession != null) {
+                                captureSession.release();
+                                captureSession = null;
+                            }
                         }
                     }, handler);
+                    if (captureSession != null) captureSession.release();
+                    captureSession = new ScreenCaptureSession(this, mediaProjection);
+                    captureSession.warmUp();
                 }
             }
 
@@ -164,7 +233,8 @@ public class FloatingTranslatorService extends Service {
                 if (cropRect != null) manualCaptureForAccumulator(cropRect);
             } 
             else if ("ACTION_DONE".equals(action)) {
-                finishAndShowResult();
+                // Pages still being read are part of the result.
+                pagePipeline.whenDrained(this::finishAndShowResult);
             }
 
             // 3. Handle Legacy Commands (if any external triggers)
@@ -190,142 +260,261 @@ public class FloatingTranslatorService extends Service {
         if (floatingBubbleView != null) floatingBubbleView.setVisibility(View.VISIBLE);
 
         if (mediaProjection != null) {
-            // Use Single Shot Mode
-            isBurstMode = false;
-            this.currentCropRect = selectedRect;
-            capturedBitmaps.clear();
-            startCapture(selectedRect); // Capture using original method
+            stopBurstTicker();
+            if (isBurstMode) {
+                // Burst frames are already stitched; add one last frame of the same region.
+                isBurstMode = false;
+                startCapture(currentCropRect);
+            } else {
+                // Use Single Shot Mode
+                this.currentCropRect = selectedRect;
+                stitchSession.begin();
+                selectionLineHeight = 0f;
+                incrementalOcr.cancel();
+                isIncrementalOcrActive = false;
+                applyCaptureScale();
+                startCapture(selectedRect); // Capture using original method
+            }
         } else {
             requestPermissionRestart();
         }
     }
 
     // Original Capture Logic (Restored)
+    // Frames now come from the warm capture session instead of a fresh VirtualDisplay per tap.
     private void startCapture(final Rect cropRect) {
-        if (imageReader != null) return;
+        startCapture(cropRect, true);
+    }
 
-        imageReader = ImageReader.newInstance(screenWidth, screenHeight, PixelFormat.RGBA_8888, 2);
-        try {
-            virtualDisplay = mediaProjection.createVirtualDisplay("ScreenCapture",
-                    screenWidth, screenHeight, screenDensity,
-                    DisplayManager.VIRTUAL_DISPLAY_FLAG_AUTO_MIRROR,
-                    imageReader.getSurface(), null, null);
-        } catch (Exception e) {
-            e.printStackTrace();
+    // mayRescale: the frame may be taken again at a higher scale if the selection's own text turns
+    // out too small for the scale the history suggested.
+    private void startCapture(final Rect cropRect, final boolean mayRescale) {
+        if (captureSession == null) {
             requestPermissionRestart();
             return;
         }
 
-        imageReader.setOnImageAvailableListener(new ImageReader.OnImageAvailableListener() {
+        // Fresh frame: the crop overlay was just removed and must not appear in the capture.
+        captureSession.requestFrame(true, new ScreenCaptureSession.FrameCallback() {
             @Override
-            public void onImageAvailable(ImageReader reader) {
-                Image image = null;
+            public void onFrame(Image image, float scale) {
                 try {
-                    image = reader.acquireLatestImage();
-                    if (image != null) {
-                        Image.Plane[] planes = image.getPlanes();
-                        ByteBuffer buffer = planes[0].getBuffer();
-                        int pixelStride = planes[0].getPixelStride();
-                        int rowStride = planes[0].getRowStride();
-                        int rowPadding = rowStride - pixelStride * screenWidth;
-
-                        Bitmap fullBitmap = Bitmap.createBitmap(screenWidth + rowPadding / pixelStride, screenHeight, Bitmap.Config.ARGB_8888);
-                        fullBitmap.copyPixelsFromBuffer(buffer);
-
-                        // Crop to Blue Box
-                        int left = Math.max(0, cropRect.left);
-                        int top = Math.max(0, cropRect.top);
-                        int width = Math.min(cropRect.width(), fullBitmap.getWidth() - left);
-                        int height = Math.min(cropRect.height(), fullBitmap.getHeight() - top);
-
-                        Bitmap capturedFrame = null;
-                        if (width > 0 && height > 0) {
-                            capturedFrame = Bitmap.createBitmap(fullBitmap, left, top, width, height);
-                        }
-                        fullBitmap.recycle();
-
-                        if (capturedFrame != null) {
-                            capturedBitmaps.add(capturedFrame);
+                    // Crop to Blue Box
+                    stitchScale = scale;
+                    Bitmap capturedFrame = FrameCropper.crop(image, scale, cropRect.left, cropRect.top, cropRect.width(), cropRect.height());
+                    if (capturedFrame != null) {
+                        // The scale came from earlier captures; measure the text actually selected.
+                        float lineHeight = TextRegionDetector.estimateLineHeight(capturedFrame) / scale;
+                        float wanted = scalePolicy.scaleFor(lineHeight);
+                        // Not for the last frame of a burst, which must match the frames before it.
+                        if (mayRescale && lineHeight > 0f && wanted > scale && stitchSession.getFrameCount() == 0) {
+                            BufferPool.get().release(capturedFrame);
+                            captureSession.setScale(wanted);
+                            startCapture(cropRect, false);
+                            return;
                         }
-
-                        stopCapture();
-                        // Trigger Blue Bubble Processing
-                        processBlueBubbleResult();
-                        image.close();
+                        selectionLineHeight = lineHeight;
+                        stitchSession.offer(capturedFrame);
                     }
                 } catch (Exception e) {
                     e.printStackTrace();
-                    stopCapture();
                 }
+                // Trigger Blue Bubble Processing
+                handler.post(() -> processBlueBubbleResult());
             }
-        }, handler);
+
+            @Override
+            public void onError(String message) {
+                handler.post(() -> abandonCapture(message));
+            }
+        });
     }
 
-    private void stopCapture() {
-        if (virtualDisplay != null) { virtualDisplay.release(); virtualDisplay = null; }
-        if (imageReader != null) { imageReader.close(); imageReader = null; }
+    // Main thread: drops a single or burst capture that cannot be completed, so the next one starts clean.
+    private void abandonCapture(String message) {
+        stopBurstTicker();
+        isBurstMode = false;
+        stitchSession.cancel();
+        incrementalOcr.cancel();
+        isIncrementalOcrActive = false;
+        burstLines.clear();
+        Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
     }
 
-    private void processBlueBubbleResult() {
-        if (!capturedBitmaps.isEmpty()) {
-            performTranslationOcr(capturedBitmaps.get(0));
+    // =========================================================
+    // BURST CAPTURE (Drag-to-scroll in the Blue Selection Box)
+    // =========================================================
+
+    /**
+     * Called by CropSelectionView when the selection reaches the bottom edge and auto-scroll starts.
+     * Frames of the region are sampled until scrolling stops and stitched as they arrive.
+     */
+    public void onAutoScrollStarted(Rect region) {
+        if (captureSession == null) return;
+        if (!isBurstMode) {
+            isBurstMode = true;
+            currentCropRect = region;
+            stitchSession.begin();
+            selectionLineHeight = 0f;
+            burstLines.clear();
+            // Every frame of one stitch must have the same size, so the scale is picked once here.
+            float scale = applyCaptureScale();
+            incrementalOcr.begin(ocrOptions(languageCode(currentSourceLang), bubbleOcrMode, scale), burstOcrListener);
+            isIncrementalOcrActive = true;
+        }
+        if (!isBurstTicking) {
+            isBurstTicking = true;
+            handler.post(burstRunnable);
         }
     }
 
-    // OCR specifically for Translation (Restored Logic)
-    private void performTranslationOcr(Bitmap bitmap) {
-        InputImage image = InputImage.fromBitmap(bitmap, 0);
-        TextRecognizer recognizer = TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS);
-
-        recognizer.process(image)
-            .addOnSuccessListener(new OnSuccessListener<Text>() {
-                @Override
-                public void onSuccess(Text visionText) {
-                    latestOcrText = visionText.getText();
-                    if (latestOcrText != null && !latestOcrText.isEmpty()) {
-                        // GO TO TRANSLATION, NOT DEBUG
-                        translateText(latestOcrText);
-                    } else {
-                        Toast.makeText(FloatingTranslatorService.this, "No text found", Toast.LENGTH_SHORT).show();
-                    }
+    public void onAutoScrollStopped() {
+        stopBurstTicker();
+    }
+
+    private void stopBurstTicker() {
+        isBurstTicking = false;
+        handler.removeCallbacks(burstRunnable);
+    }
+
+    private final Runnable burstRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!isBurstTicking || captureSession == null) return;
+            long now = System.currentTimeMillis();
+            if (now - lastCaptureTime >= CAPTURE_INTERVAL_MS) {
+                lastCaptureTime = now;
+                captureBurstFrame(currentCropRect);
+            }
+            handler.postDelayed(this, CAPTURE_INTERVAL_MS);
+        }
+    };
+
+    private void captureBurstFrame(final Rect region) {
+        captureSession.requestFrame(false, new ScreenCaptureSession.FrameCallback() {
+            @Override
+            public void onFrame(Image image, float scale) {
+                try {
+                    // Frames that show the same page as the last kept one are dropped here.
+                    stitchScale = scale;
+                    stitchSession.offerIfChanged(FrameCropper.crop(image, scale, region.left, region.top, region.width(), region.height()));
+                } catch (IOException e) {
+                    e.printStackTrace();
                 }
-            })
-            .addOnFailureListener(e -> Toast.makeText(FloatingTranslatorService.this, "OCR Failed", Toast.LENGTH_SHORT).show());
+            }
+
+            @Override
+            public void onError(String message) {
+                // A missed sample is not fatal; the next tick tries again.
+            }
+        });
     }
 
-    private void translateText(final String text) {
-        // Find language codes
-        int srcIndex = -1, targetIndex = -1;
-        for (int i = 0; i < languages.length; i++) {
-            if (languages[i].equals(currentSourceLang)) srcIndex = i;
-            if (languages[i].equals(currentTargetLang)) targetIndex = i;
+    private void processBlueBubbleResult() {
+        StripCanvas canvas;
+        try {
+            canvas = stitchSession.finish();
+        } catch (IOException e) {
+            e.printStackTrace();
+            abandonCapture("Capture Failed");
+            return;
+        }
+        if (canvas == null) return;
+        if (isIncrementalOcrActive) {
+            // Most of the burst is already recognized; only the last strip is left.
+            isIncrementalOcrActive = false;
+            incrementalOcr.finish(canvas);
+            canvas.close();
+        } else {
+            performTranslationOcr(canvas, stitchScale);
+        }
+    }
+
+    private final IncrementalOcr.Listener burstOcrListener = new IncrementalOcr.Listener() {
+        @Override
+        public void onLinesRecognized(List<OcrLine> lines) {
+            recordLineHeights(lines, stitchScale);
+            // Translate what is readable so far; lines already translated come from the cache, and
+            // strips arriving close together are debounced into one request.
+            burstLines.addAll(lines);
+            latestOcrText = OcrLine.join(burstLines);
+            if (!latestOcrText.isEmpty()) translateText(latestOcrText, true);
+        }
+
+        @Override
+        public void onComplete(List<OcrLine> allLines) {
+            // The whole document replaces the partial text and any translation of it still running.
+            showOcrResult(allLines);
         }
-        
-        if (srcIndex == -1 || targetIndex == -1) return;
-        
-        final String srcCode = languageCodes[srcIndex];
-        final String targetCode = languageCodes[targetIndex];
 
-        // Background Thread for API
+        @Override
+        public void onError() {
+            Toast.makeText(FloatingTranslatorService.this, "OCR Failed", Toast.LENGTH_SHORT).show();
+        }
+    };
+
+    // OCR specifically for Translation (Restored Logic)
+    // The canvas is read tile by tile, so captures of any length are recognized at full resolution.
+    private void performTranslationOcr(final StripCanvas canvas, final float scale) {
+        final String sourceCode = languageCode(currentSourceLang);
         executor.execute(new Runnable() {
             @Override
             public void run() {
-                final String result = TranslateApi.translate(srcCode, targetCode, text);
+                List<OcrLine> lines = null;
+                try {
+                    float lineHeight = (selectionLineHeight > 0f) ? selectionLineHeight : scalePolicy.typicalLineHeight();
+                    lines = tiledOcr.recognize(canvas, new OcrEngine.Options(sourceCode, bubbleOcrMode, lineHeight * scale));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                } finally {
+                    canvas.close();
+                }
+                final List<OcrLine> result = lines;
                 handler.post(new Runnable() {
                     @Override
                     public void run() {
-                        if (result != null) {
-                            latestTranslation = result;
-                            showResultPopup(); // SHOW THE POPUP
-                        } else {
-                            Toast.makeText(FloatingTranslatorService.this, "Translation Failed", Toast.LENGTH_SHORT).show();
+                        if (result == null) {
+                            Toast.makeText(FloatingTranslatorService.this, "OCR Failed", Toast.LENGTH_SHORT).show();
+                            return;
                         }
+                        recordLineHeights(result, scale);
+                        showOcrResult(result);
                     }
                 });
             }
         });
     }
 
+    private void showOcrResult(List<OcrLine> lines) {
+        latestOcrText = OcrLine.join(lines);
+        if (!latestOcrText.isEmpty()) {
+            // GO TO TRANSLATION, NOT DEBUG
+            translateText(latestOcrText, false);
+        } else {
+            Toast.makeText(FloatingTranslatorService.this, "No text found", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    // Code for a language name from the spinner list, or null if it is not in the list.
+    private String languageCode(String language) {
+        for (int i = 0; i < languages.length; i++) {
+            if (languages[i].equals(language)) return languageCodes[i];
+        }
+        return null;
+    }
+
+    // Debounced requests wait briefly in case another one follows (spinner flicking).
+    private void translateText(final String text, boolean debounce) {
+        // Find language codes
+        final String srcCode = languageCode(currentSourceLang);
+        final String targetCode = languageCode(currentTargetLang);
+
+        if (srcCode == null || targetCode == null) return;
+
+        // Background Thread for API; a newer request cancels this one.
+        translationScheduler.request(srcCode, targetCode, text, debounce);
+    }
+
     private void showResultPopup() {
         if (popupView != null) windowManager.removeView(popupView);
 
@@ -363,77 +552,113 @@ public class FloatingTranslatorService extends Service {
     // =========================================================
 
     private void manualCaptureForAccumulator(final Rect cropRect) {
-        if (mediaProjection == null) {
+        if (captureSession == null) {
             Toast.makeText(this, "Permission missing", Toast.LENGTH_SHORT).show();
             return;
         }
-        stopCapture(); // Ensure cleanup
 
-        imageReader = ImageReader.newInstance(screenWidth, screenHeight, PixelFormat.RGBA_8888, 2);
-        virtualDisplay = mediaProjection.createVirtualDisplay("ManualCapture",
-                screenWidth, screenHeight, screenDensity,
-                DisplayManager.VIRTUAL_DISPLAY_FLAG_AUTO_MIRROR,
-                imageReader.getSurface(), null, null);
+        // The sequence number is taken at tap time, so pages keep their order however long OCR takes.
+        final int sequence = pagePipeline.reserve();
+        if (sequence < 0) {
+            Toast.makeText(this, "Still reading previous pages...", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        final String sourceCode = languageCode(currentSourceLang);
 
-        imageReader.setOnImageAvailableListener(new ImageReader.OnImageAvailableListener() {
+        applyCaptureScale();
+        // The two-line overlay stays on screen, so the latest frame is good enough.
+        captureSession.requestFrame(false, new ScreenCaptureSession.FrameCallback() {
             @Override
-            public void onImageAvailable(ImageReader reader) {
-                Image image = null;
-                try {
-                    image = reader.acquireLatestImage();
-                    if (image != null) {
-                        Image.Plane[] planes = image.getPlanes();
-                        ByteBuffer buffer = planes[0].getBuffer();
-                        int pixelStride = planes[0].getPixelStride();
-                        int rowPadding = planes[0].getRowStride() - pixelStride * screenWidth;
-
-                        Bitmap fullBitmap = Bitmap.createBitmap(screenWidth + rowPadding / pixelStride, screenHeight, Bitmap.Config.ARGB_8888);
-                        fullBitmap.copyPixelsFromBuffer(buffer);
-
-                        // Strict Crop
-                        int safeTop = Math.max(0, cropRect.top);
-                        int safeHeight = Math.min(cropRect.height(), fullBitmap.getHeight() - safeTop);
-                        
-                        if (safeHeight > 0) {
-                            Bitmap cropped = Bitmap.createBitmap(fullBitmap, 0, safeTop, screenWidth, safeHeight);
-                            fullBitmap.recycle();
-                            processAccumulatorOcr(cropped);
-                        } else {
-                            fullBitmap.recycle();
-                        }
-                        stopCapture();
-                        image.close();
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    stopCapture();
-                }
+            public void onFrame(Image image, float scale) {
+                // Strict Crop: full width between the two lines.
+                Bitmap cropped = FrameCropper.crop(image, scale, 0, cropRect.top, Math.round(image.getWidth() / scale), cropRect.height());
+                pagePipeline.submit(sequence, cropped, scale, ocrOptions(sourceCode, pageOcrMode, scale));
             }
-        }, handler);
-    }
 
-    private void processAccumulatorOcr(Bitmap bitmap) {
-        InputImage image = InputImage.fromBitmap(bitmap, 0);
-        TextRecognizer recognizer = TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS);
-
-        recognizer.process(image).addOnSuccessListener(visionText -> {
-            StringBuilder pageText = new StringBuilder();
-            for (Text.TextBlock block : visionText.getTextBlocks()) {
-                String text = block.getText();
-                if (text.contains("ADD PAGE") || text.contains("DONE")) continue;
-                pageText.append(text).append("\n");
-            }
-            if (pageText.length() > 0) {
-                globalTextAccumulator.append(pageText).append("\n\n");
-                Toast.makeText(this, "Text Added", Toast.LENGTH_SHORT).show();
-            } else {
-                Toast.makeText(this, "No text found", Toast.LENGTH_SHORT).show();
+            @Override
+            public void onError(String message) {
+                pagePipeline.submit(sequence, null, 1f, null);
+                handler.post(() -> Toast.makeText(FloatingTranslatorService.this, message, Toast.LENGTH_SHORT).show());
             }
         });
     }
 
+    /**
+     * Keeps the screen mirror running, called while the bubble or the two-line overlay is in use.
+     */
+    public void warmUpCapture() {
+        if (captureSession != null) captureSession.warmUp();
+    }
+
+    // Moves the mirror to the resolution the policy currently recommends.
+    // Returns the scale that was requested.
+    private float applyCaptureScale() {
+        float scale = scalePolicy.currentScale();
+        if (captureSession != null) captureSession.setScale(scale);
+        return scale;
+    }
+
+    // Recognition settings for a capture taken at the given scale.
+    private OcrEngine.Options ocrOptions(String sourceCode, OcrPreprocessor.Mode mode, float scale) {
+        return new OcrEngine.Options(sourceCode, mode, scalePolicy.typicalLineHeight() * scale);
+    }
+
+    // The free endpoint, optionally hedged with Gemini (or, without an API key, a second free request).
+    private TranslationProvider translationProvider(SharedPreferences prefs) {
+        hedgedProvider = null;
+        TranslationProvider google = new GoogleTranslateProvider();
+        if (!prefs.getBoolean(SettingsActivity.KEY_HEDGE_TRANSLATION, false)) return google;
+        String apiKey = prefs.getString(SettingsActivity.KEY_API_KEY, "");
+        TranslationProvider backup = apiKey.isEmpty() ? new GoogleTranslateProvider() : new GeminiTranslationProvider(apiKey);
+        hedgedProvider = new HedgedTranslationProvider(google, backup);
+        return hedgedProvider;
+    }
+
+    private void onSettingChanged(String key) {
+        if (SettingsActivity.KEY_HEDGE_TRANSLATION.equals(key) || SettingsActivity.KEY_API_KEY.equals(key)) {
+            HedgedTranslationProvider previous = hedgedProvider;
+            batchTranslator.setProvider(translationProvider(prefs));
+            // After any translation still using it.
+            if (previous != null) translationExecutor.execute(previous::shutdown);
+        }
+        applySettings();
+    }
+
+    // Picks up settings that can change while the service runs.
+    private void applySettings() {
+        scalePolicy.setFixedScale(prefs.getFloat(SettingsActivity.KEY_CAPTURE_SCALE, CaptureScalePolicy.AUTO));
+        bubbleOcrMode = SettingsActivity.readOcrMode(prefs, SettingsActivity.KEY_OCR_MODE_BUBBLE);
+        pageOcrMode = SettingsActivity.readOcrMode(prefs, SettingsActivity.KEY_OCR_MODE_PAGES);
+    }
+
+    // Feeds the recognized line heights back to the policy, in full-resolution pixels.
+    private void recordLineHeights(List<OcrLine> lines, float scale) {
+        for (OcrLine line : lines) scalePolicy.recordLineHeight(line.box.height() / scale);
+    }
+
+    // Called by the page pipeline, in capture order.
+    private void accumulatePage(List<OcrLine> lines, float scale) {
+        if (lines == null) {
+            Toast.makeText(this, "OCR Failed", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        recordLineHeights(lines, scale);
+        List<String> pageLines = new ArrayList<>();
+        for (String text : OcrLine.blockTexts(lines)) {
+            if (text.contains("ADD PAGE") || text.contains("DONE")) continue;
+            pageLines.addAll(Arrays.asList(text.split("\n")));
+        }
+        if (pageLines.isEmpty()) {
+            Toast.makeText(this, "No text found", Toast.LENGTH_SHORT).show();
+        } else if (pageAccumulator.addPage(pageLines) > 0) {
+            Toast.makeText(this, "Text Added", Toast.LENGTH_SHORT).show();
+        } else {
+            Toast.makeText(this, "Page already added", Toast.LENGTH_SHORT).show();
+        }
+    }
+
     private void finishAndShowResult() {
-        String finalText = globalTextAccumulator.toString().trim();
+        String finalText = pageAccumulator.getText().trim();
         if (finalText.isEmpty()) {
             Toast.makeText(this, "No text captured.", Toast.LENGTH_SHORT).show();
             return;
@@ -450,7 +675,7 @@ public class FloatingTranslatorService extends Service {
         DebugActivity.sFilteredText = finalText;
         DebugActivity.sRawText = "Manual Capture Session";
         DebugActivity.sErrorLog = "";
-        globalTextAccumulator.setLength(0); // Reset
+        pageAccumulator.clear(); // Reset
 
         Intent intent = new Intent(this, DebugActivity.class);
         intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
@@ -493,6 +718,8 @@ public class FloatingTranslatorService extends Service {
                         initialX = bubbleParams.x; initialY = bubbleParams.y;
                         initialTouchX = event.getRawX(); initialTouchY = event.getRawY();
                         lastClickTime = System.currentTimeMillis();
+                        // A tap usually leads to a capture; get the mirror running now.
+                        warmUpCapture();
                         closeTargetView.setVisibility(View.VISIBLE);
                         return true;
                     case MotionEvent.ACTION_MOVE:
@@ -595,14 +822,20 @@ public class FloatingTranslatorService extends Service {
                 return;
             }
             Toast.makeText(this, "Refining...", Toast.LENGTH_SHORT).show();
+            final TextView tv = popupView.findViewById(R.id.popup_translated_text);
+            // The answer is streamed into the popup as it is generated, one update per frame at most.
+            final FrameTextUpdater updater = new FrameTextUpdater(tv);
+            final String original = latestTranslation;
             executor.execute(() -> {
-                String refined = GeminiApi.refine(latestTranslation, currentTargetLang, apiKey);
+                String refined = GeminiApi.refineStreaming(original, currentTargetLang, apiKey, updater::update);
                 handler.post(() -> {
+                    updater.cancel();
                     if (refined != null) {
                         latestTranslation = refined;
-                        TextView tv = popupView.findViewById(R.id.popup_translated_text);
                         tv.setText(latestTranslation);
                     } else {
+                        // Partial text may be showing; put the translation back.
+                        tv.setText(original);
                         Toast.makeText(this, "Refine Failed", Toast.LENGTH_SHORT).show();
                     }
                 });
@@ -627,7 +860,7 @@ public class FloatingTranslatorService extends Service {
                 String t = (String) targetSpinner.getSelectedItem();
                 if (!currentSourceLang.equals(s) || !currentTargetLang.equals(t)) {
                     currentSourceLang = s; currentTargetLang = t;
-                    translateText(latestOcrText);
+                    translateText(latestOcrText, true);
                 }
             }
             @Override public void onNothingSelected(AdapterView<?> parent) {}
@@ -644,13 +877,45 @@ public class FloatingTranslatorService extends Service {
         }
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // Idle capture buffers are the easiest memory to give back.
+        BufferPool.get().trim();
+        // Unused script models go next; under real pressure even the Latin one is reloaded later.
+        boolean critical = level == TRIM_MEMORY_RUNNING_CRITICAL || level >= TRIM_MEMORY_MODERATE;
+        recognizers.trim(critical);
+        if (critical) {
+            ocrEngine.getCache().clear();
+            translationCache.trimMemory();
+        }
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
         sInstance = null;
+        prefs.unregisterOnSharedPreferenceChangeListener(settingsListener);
+        // Lets the next session start at a reduced scale straight away.
+        float lineHeight = scalePolicy.typicalLineHeight();
+        if (lineHeight > 0f) prefs.edit().putFloat(SettingsActivity.KEY_LINE_HEIGHT, lineHeight).apply();
+        if (captureSession != null) captureSession.release();
         if (mediaProjection != null) mediaProjection.stop();
         if (floatingBubbleView != null) windowManager.removeView(floatingBubbleView);
         if (popupView != null) windowManager.removeView(popupView);
         if (closeTargetView != null) windowManager.removeView(closeTargetView);
+        stitchSession.shutdown();
+        pagePipeline.shutdown();
+        tiledOcr.shutdown();
+        incrementalOcr.shutdown();
+        ocrEngine.shutdown();
+        recognizers.close();
+        translationScheduler.cancel();
+        // After any translation still running on the translation thread.
+        translationExecutor.execute(translationCache::close);
+        translationExecutor.shutdown();
+        executor.shutdown();
+        batchTranslator.shutdown();
+        if (hedgedProvider != null) hedgedProvider.shutdown();
     }
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.app.bubble;
+
+import android.graphics.Bitmap;
+import android.media.Image;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Crops a region straight out of a captured RGBA_8888 {@link Image}.
+ *
+ * Only the selected rows and columns are read from the plane buffer (respecting rowStride and
+ * pixelStride), instead of first copying the whole padded screen into a bitmap. For a thin
+ * selection that is a small fraction of the memory traffic.
+ */
+public final class FrameCropper {
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    // This class is not meant to be instantiated, so we make the constructor private.
+    private FrameCropper() {}
+
+    /**
+     * Maps a crop given in real screen coordinates onto a frame captured at the given scale,
+     * then crops it (see {@link #crop(Image, int, int, int, int)}).
+     */
+    public static Bitmap crop(Image image, float scale, int screenLeft, int screenTop, int screenWidth, int screenHeight) {
+        if (scale == 1f) return crop(image, screenLeft, screenTop, screenWidth, screenHeight);
+        int left = (int) Math.floor(screenLeft * scale);
+        int top = (int) Math.floor(screenTop * scale);
+        int right = (int) Math.ceil((screenLeft + screenWidth) * scale);
+        int bottom = (int) Math.ceil((screenTop + screenHeight) * scale);
+        return crop(image, left, top, right - left, bottom - top);
+    }
+
+    /**
+     * Copies the given region of the frame into a pooled ARGB_8888 bitmap.
+     * The region is clamped to the frame; returns null if nothing is left.
+     */
+    public static Bitmap crop(Image image, int cropLeft, int cropTop, int cropWidth, int cropHeight) {
+        int frameWidth = image.getWidth();
+        int frameHeight = image.getHeight();
+        int left = Math.max(0, cropLeft);
+        int top = Math.max(0, cropTop);
+        int width = Math.min(cropWidth, frameWidth - left);
+        int height = Math.min(cropHeight, frameHeight - top);
+        if (width <= 0 || height <= 0) return null;
+
+        Image.Plane plane = image.getPlanes()[0];
+        ByteBuffer source = plane.getBuffer();
+        int pixelStride = plane.getPixelStride();
+        int rowStride = plane.getRowStride();
+
+        BufferPool pool = BufferPool.get();
+        int rowBytes = width * BYTES_PER_PIXEL;
+        byte[] pixels = pool.acquireBytes(rowBytes * height);
+
+        if (pixelStride == BYTES_PER_PIXEL) {
+            // Pixels in a row are packed: one bulk copy per row.
+            for (int row = 0; row < height; row++) {
+                source.position((top + row) * rowStride + left * pixelStride);
+                source.get(pixels, row * rowBytes, rowBytes);
+            }
+        } else {
+            // Unusual layout: gather pixel by pixel.
+            for (int row = 0; row < height; row++) {
+                int rowStart = (top + row) * rowStride + left * pixelStride;
+                int out = row * rowBytes;
+                for (int x = 0; x < width; x++) {
+                    int in = rowStart + x * pixelStride;
+                    for (int b = 0; b < BYTES_PER_PIXEL; b++) pixels[out++] = source.get(in + b);
+                }
+            }
+        }
+        source.rewind();
+
+        // RGBA_8888 bytes are the same in-memory layout an ARGB_8888 bitmap uses.
+        Bitmap target = pool.acquireBitmap(width, height, Bitmap.Config.ARGB_8888);
+        target.copyPixelsFromBuffer(ByteBuffer.wrap(pixels, 0, rowBytes * height));
+        pool.release(pixels);
+        return target;
+    }
+}
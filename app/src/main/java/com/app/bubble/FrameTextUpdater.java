@@ -0,0 +1,56 @@
+package com.app.bubble;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.widget.TextView;
+
+/**
+ * Shows text that changes faster than the screen refreshes, e.g. a streamed answer.
+ *
+ * {@link #update(String)} may be called from any thread and as often as data arrives; the text view
+ * is set at most once per frame, with the latest text, from a {@link Choreographer} callback.
+ */
+public class FrameTextUpdater implements Choreographer.FrameCallback {
+
+    private final TextView view;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Guarded by this.
+    private String pending;
+    private boolean scheduled = false;
+
+    public FrameTextUpdater(TextView view) {
+        this.view = view;
+    }
+
+    public void update(String text) {
+        synchronized (this) {
+            pending = text;
+            if (scheduled) return;
+            scheduled = true;
+        }
+        // The Choreographer belongs to the main thread.
+        mainHandler.post(() -> Choreographer.getInstance().postFrameCallback(this));
+    }
+
+    /**
+     * Stops pending updates, e.g. before the final text is set directly.
+     */
+    public void cancel() {
+        synchronized (this) {
+            pending = null;
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        String text;
+        synchronized (this) {
+            text = pending;
+            pending = null;
+            scheduled = false;
+        }
+        if (text != null) view.setText(text);
+    }
+}
@@ -1,18 +1,17 @@
 package com.app.bubble;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.IOException;
 
 public final class GeminiApi {
 
     // The correct endpoint for the Gemini 2.0 Flash model, as you specified.
     private static final String API_ENDPOINT = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.0-flash:generateContent?key=";
+    // Same model, answer sent as server-sent events while it is generated.
+    private static final String STREAM_ENDPOINT = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.0-flash:streamGenerateContent?alt=sse&key=";
 
     // A private constructor because this is a utility class and should not be instantiated.
     private GeminiApi() {}
@@ -26,72 +25,137 @@ public final class GeminiApi {
      */
     public static String refine(String textToRefine, String targetLanguage, String apiKey) {
         try {
-            // 1. Construct the full URL with the user's API key.
-            URL url = new URL(API_ENDPOINT + apiKey);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setDoOutput(true);
-
-            // 2. Create a more specific prompt for the AI.
-            // This prompt now explicitly states the target language for refinement to avoid ambiguity.
-            String prompt = "You are an expert language assistant. Your task is to refine the following machine-translated text which is in " + targetLanguage + ". " +
-                "Make it sound more natural, fluent, and grammatically perfect in " + targetLanguage + ", as if a native speaker wrote it. " +
-                "Do not change the original meaning. Only provide the refined text as your answer, with no extra explanations or introductory phrases. " +
-                "Here is the text: \"" + textToRefine + "\"";
-
-            // 3. Build the JSON request body required by the Gemini API.
-            JSONObject part = new JSONObject();
-            part.put("text", prompt);
-
-            JSONArray partsArray = new JSONArray();
-            partsArray.put(part);
-
-            JSONObject content = new JSONObject();
-            content.put("parts", partsArray);
-
-            JSONArray contentsArray = new JSONArray();
-            contentsArray.put(content);
-
-            JSONObject requestBody = new JSONObject();
-            requestBody.put("contents", contentsArray);
-
-            String jsonInputString = requestBody.toString();
-
-            // 4. Send the request to the API.
-            try (OutputStream os = connection.getOutputStream()) {
-                byte[] input = jsonInputString.getBytes("utf-8");
-                os.write(input, 0, input.length);
-            }
+            return generate(requestBody(textToRefine, targetLanguage), apiKey, null);
+        } catch (Exception e) {
+            // If anything goes wrong (invalid API key, network error, etc.), log the error and return null.
+            e.printStackTrace();
+            return null;
+        }
+    }
 
-            // 5. Read the response from the API.
-            StringBuilder response = new StringBuilder();
-            try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(connection.getInputStream(), "utf-8"))) {
-                String responseLine = null;
-                while ((responseLine = br.readLine()) != null) {
-                    response.append(responseLine.trim());
-                }
-            }
+    /**
+     * Translates text with Gemini, line for line.
+     * @param fromLanguage The language of the text (e.g., "English").
+     * @param toLanguage The language to translate to (e.g., "Malayalam").
+     * @param apiKey The user's personal Gemini API key from settings.
+     * @param cancellation Aborts the request when cancelled, or null.
+     * @return The translated text, or null if an error occurs.
+     */
+    public static String translate(String text, String fromLanguage, String toLanguage, String apiKey,
+                                   CancellationToken cancellation) {
+        try {
+            String prompt = "Translate the following " + fromLanguage + " text into " + toLanguage + ". " +
+                "Keep exactly one output line per input line, in the same order. " +
+                "Only provide the translation, with no extra explanations or introductory phrases.\n\n" + text;
+            return generate(promptBody(prompt), apiKey, cancellation);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
 
-            connection.disconnect();
+    // Sends one generateContent request and returns the answer text.
+    private static String generate(String jsonInputString, String apiKey, CancellationToken cancellation)
+            throws Exception {
+        // 1. Send the request to the API (the full URL carries the user's API key).
+        HttpTransport.Request request = new HttpTransport.Request("POST", API_ENDPOINT + apiKey)
+                .body("application/json", jsonInputString.getBytes("utf-8"))
+                .cancellation(cancellation);
+        HttpTransport.Response response = Http.get().execute(request);
+        if (!response.isSuccessful()) throw new IOException("HTTP " + response.code);
+
+        // 2. Parse the JSON response to extract the answer text.
+        JSONObject jsonResponse = new JSONObject(response.string());
+        String answer = jsonResponse.getJSONArray("candidates")
+            .getJSONObject(0)
+            .getJSONObject("content")
+            .getJSONArray("parts")
+            .getJSONObject(0)
+            .getString("text");
+
+        return answer.trim();
+    }
 
-            // 6. Parse the JSON response to extract the refined text.
-            JSONObject jsonResponse = new JSONObject(response.toString());
-            String refinedText = jsonResponse.getJSONArray("candidates")
-                .getJSONObject(0)
-                .getJSONObject("content")
-                .getJSONArray("parts")
-                .getJSONObject(0)
-                .getString("text");
+    /**
+     * Receives the refined text while it is being generated.
+     */
+    public interface ProgressListener {
+        /** Called on the calling thread with everything generated so far. */
+        void onProgress(String textSoFar);
+    }
 
-            return refinedText.trim();
+    /**
+     * Like {@link #refine}, but streams the answer: {@code listener} sees the text grow chunk by
+     * chunk, so the first words can be shown long before the whole answer is ready.
+     * @return The complete refined text, or null if an error occurs.
+     */
+    public static String refineStreaming(String textToRefine, String targetLanguage, String apiKey,
+                                         final ProgressListener listener) {
+        try {
+            String jsonInputString = requestBody(textToRefine, targetLanguage);
+            HttpTransport.Request request = new HttpTransport.Request("POST", STREAM_ENDPOINT + apiKey)
+                    .body("application/json", jsonInputString.getBytes("utf-8"));
+
+            // Each event is a complete response object carrying the next chunk of text.
+            final StringBuilder refined = new StringBuilder();
+            final boolean[] failed = {false};
+            try (HttpTransport.StreamedResponse response = Http.get().stream(request)) {
+                if (!response.isSuccessful()) throw new IOException("HTTP " + response.code);
+                new SseParser(data -> {
+                    try {
+                        JSONObject event = new JSONObject(data);
+                        JSONArray candidates = event.optJSONArray("candidates");
+                        if (candidates == null || candidates.length() == 0) return true;
+                        JSONObject content = candidates.getJSONObject(0).optJSONObject("content");
+                        JSONArray parts = (content != null) ? content.optJSONArray("parts") : null;
+                        if (parts == null) return true;
+                        for (int i = 0; i < parts.length(); i++) refined.append(parts.getJSONObject(i).optString("text"));
+                        listener.onProgress(refined.toString().trim());
+                        return true;
+                    } catch (JSONException e) {
+                        e.printStackTrace();
+                        failed[0] = true;
+                        return false;
+                    }
+                }).readFrom(response.body);
+            }
+            if (failed[0] || refined.length() == 0) return null;
+            return refined.toString().trim();
 
         } catch (Exception e) {
-            // If anything goes wrong (invalid API key, network error, etc.), log the error and return null.
             e.printStackTrace();
             return null;
         }
     }
-}
 
+    // The refine prompt, shared by both refine modes.
+    private static String requestBody(String textToRefine, String targetLanguage) throws JSONException {
+        // 1. Create a more specific prompt for the AI.
+        // This prompt now explicitly states the target language for refinement to avoid ambiguity.
+        String prompt = "You are an expert language assistant. Your task is to refine the following machine-translated text which is in " + targetLanguage + ". " +
+            "Make it sound more natural, fluent, and grammatically perfect in " + targetLanguage + ", as if a native speaker wrote it. " +
+            "Do not change the original meaning. Only provide the refined text as your answer, with no extra explanations or introductory phrases. " +
+            "Here is the text: \"" + textToRefine + "\"";
+        return promptBody(prompt);
+    }
+
+    // Builds the JSON request body required by the Gemini API for a single prompt.
+    private static String promptBody(String prompt) throws JSONException {
+        JSONObject part = new JSONObject();
+        part.put("text", prompt);
+
+        JSONArray partsArray = new JSONArray();
+        partsArray.put(part);
+
+        JSONObject content = new JSONObject();
+        content.put("parts", partsArray);
+
+        JSONArray contentsArray = new JSONArray();
+        contentsArray.put(content);
+
+        JSONObject requestBody = new JSONObject();
+        requestBody.put("contents", contentsArray);
+
+        return requestBody.toString();
+    }
+}
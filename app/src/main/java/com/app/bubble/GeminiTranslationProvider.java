@@ -0,0 +1,30 @@
+package com.app.bubble;
+
+import java.util.Locale;
+
+/**
+ * Translation by Gemini with the user's API key, see {@link GeminiApi#translate}.
+ */
+public class GeminiTranslationProvider implements TranslationProvider {
+
+    private final String apiKey;
+
+    public GeminiTranslationProvider(String apiKey) {
+        this.apiKey = apiKey;
+    }
+
+    @Override
+    public String translate(String fromLang, String toLang, String text, CancellationToken cancellation) {
+        // The model is prompted with language names rather than codes.
+        return GeminiApi.translate(text, languageName(fromLang), languageName(toLang), apiKey, cancellation);
+    }
+
+    @Override
+    public String name() {
+        return "gemini";
+    }
+
+    private static String languageName(String code) {
+        return new Locale(code).getDisplayLanguage(Locale.ENGLISH);
+    }
+}
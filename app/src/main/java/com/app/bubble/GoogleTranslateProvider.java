@@ -0,0 +1,17 @@
+package com.app.bubble;
+
+/**
+ * The free Google Translate endpoint, see {@link TranslateApi}.
+ */
+public class GoogleTranslateProvider implements TranslationProvider {
+
+    @Override
+    public String translate(String fromLang, String toLang, String text, CancellationToken cancellation) {
+        return TranslateApi.translate(fromLang, toLang, text, cancellation);
+    }
+
+    @Override
+    public String name() {
+        return "google";
+    }
+}
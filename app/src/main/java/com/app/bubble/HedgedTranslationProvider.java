@@ -0,0 +1,164 @@
+package com.app.bubble;
+
+import android.os.SystemClock;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a second, backup request when the primary provider is slower than usual.
+ *
+ * The primary goes first. If it has not answered within the 95th percentile of its recent
+ * latencies, the secondary is asked as well and whichever returns a translation first wins; the
+ * other is cancelled. So only about one request in twenty is doubled, but the slow tail of the
+ * free endpoint is cut to roughly the p95 plus the secondary's own latency. A failed answer is
+ * never final: the other provider is still waited for, or asked straight away.
+ */
+public class HedgedTranslationProvider implements TranslationProvider {
+
+    /**
+     * Milliseconds from some fixed point; only differences are used.
+     */
+    interface Clock {
+        long now();
+    }
+
+    // Latencies remembered for the percentile.
+    private static final int WINDOW = 64;
+    // Until this many have been seen, the hedge delay is DEFAULT_DELAY_MS.
+    private static final int MIN_SAMPLES = 10;
+    private static final long DEFAULT_DELAY_MS = 800;
+    // Never hedge sooner than this; a fast endpoint should not double its traffic.
+    private static final long MIN_DELAY_MS = 150;
+
+    private final TranslationProvider primary;
+    private final TranslationProvider secondary;
+    private final Clock clock;
+    private final ExecutorService requests = Executors.newCachedThreadPool();
+
+    // Guarded by this. Ring of primary latencies (successful answers only).
+    private final long[] latencies = new long[WINDOW];
+    private int latencyCount = 0;
+    private int nextLatency = 0;
+
+    private long hedged = 0;
+    private long secondaryWins = 0;
+
+    public HedgedTranslationProvider(TranslationProvider primary, TranslationProvider secondary) {
+        this(primary, secondary, SystemClock::elapsedRealtime);
+    }
+
+    /**
+     * @param clock Measures the primary's latencies; tests pass one they control.
+     */
+    HedgedTranslationProvider(TranslationProvider primary, TranslationProvider secondary, Clock clock) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.clock = clock;
+    }
+
+    @Override
+    public String translate(final String fromLang, final String toLang, final String text,
+                            CancellationToken cancellation) {
+        ExecutorCompletionService<String> race = new ExecutorCompletionService<>(requests);
+        // Each attempt can be aborted on its own, so the loser's connection is dropped.
+        final CancellationToken primaryToken = child(cancellation);
+        final CancellationToken secondaryToken = child(cancellation);
+        final long start = clock.now();
+        Future<String> first = race.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                String result = primary.translate(fromLang, toLang, text, primaryToken);
+                if (result != null) recordLatency(clock.now() - start);
+                return result;
+            }
+        });
+        Future<String> second = null;
+
+        try {
+            Future<String> done = race.poll(hedgeDelayMs(), TimeUnit.MILLISECONDS);
+            if (done == null) {
+                synchronized (this) {
+                    hedged++;
+                }
+                second = submitSecondary(race, fromLang, toLang, text, secondaryToken);
+                done = race.take();
+            }
+
+            String result = done.get();
+            if (result == null) {
+                // The first to answer failed; the other one may still succeed.
+                if (second == null) second = submitSecondary(race, fromLang, toLang, text, secondaryToken);
+                done = race.take();
+                result = done.get();
+            }
+            if (result != null && done == second) {
+                synchronized (this) {
+                    secondaryWins++;
+                }
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            primaryToken.cancel();
+            secondaryToken.cancel();
+            primaryToken.release();
+            secondaryToken.release();
+            first.cancel(true);
+            if (second != null) second.cancel(true);
+        }
+    }
+
+    private Future<String> submitSecondary(ExecutorCompletionService<String> race, final String fromLang,
+                                           final String toLang, final String text, final CancellationToken token) {
+        return race.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return secondary.translate(fromLang, toLang, text, token);
+            }
+        });
+    }
+
+    private static CancellationToken child(CancellationToken parent) {
+        return (parent != null) ? parent.child() : new CancellationToken();
+    }
+
+    @Override
+    public String name() {
+        return primary.name() + "+" + secondary.name();
+    }
+
+    public void shutdown() {
+        requests.shutdownNow();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "HedgedTranslationProvider " + name() + " delay=" + hedgeDelayMs() + "ms hedged=" + hedged
+                + " secondaryWins=" + secondaryWins;
+    }
+
+    synchronized long hedgeDelayMs() {
+        if (latencyCount < MIN_SAMPLES) return DEFAULT_DELAY_MS;
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        long p95 = sorted[(int) Math.ceil(0.95 * latencyCount) - 1];
+        return Math.max(MIN_DELAY_MS, p95);
+    }
+
+    private synchronized void recordLatency(long ms) {
+        latencies[nextLatency] = ms;
+        nextLatency = (nextLatency + 1) % WINDOW;
+        latencyCount = Math.min(WINDOW, latencyCount + 1);
+    }
+}
@@ -0,0 +1,30 @@
+package com.app.bubble;
+
+/**
+ * Holds the {@link HttpTransport} used by the network APIs.
+ */
+public final class Http {
+
+    // Idle connections kept per host; BatchTranslator sends up to three requests at once.
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+
+    // Process-wide settings of the platform's keep-alive pool, applied once before the first request.
+    static {
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", String.valueOf(MAX_IDLE_CONNECTIONS));
+    }
+
+    private static volatile HttpTransport sTransport = new UrlConnectionTransport();
+
+    // This class is not meant to be instantiated, so we make the constructor private.
+    private Http() {}
+
+    public static HttpTransport get() { return sTransport; }
+
+    /**
+     * Replaces the transport for every later request.
+     */
+    public static void setTransport(HttpTransport transport) {
+        sTransport = transport;
+    }
+}
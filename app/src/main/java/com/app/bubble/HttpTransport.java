@@ -0,0 +1,105 @@
+package com.app.bubble;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sends HTTP requests for the translation and refinement APIs.
+ *
+ * The app-wide instance comes from {@link Http#get()}; it can be replaced, e.g. to point the APIs at
+ * a local stub server.
+ */
+public interface HttpTransport {
+
+    Response execute(Request request) throws IOException;
+
+    /**
+     * Like {@link #execute(Request)}, but hands the body over while it is still arriving, for
+     * streamed responses. The caller must close it.
+     */
+    StreamedResponse stream(Request request) throws IOException;
+
+    final class Request {
+        final String method;
+        final String url;
+        final Map<String, String> headers = new LinkedHashMap<>();
+        byte[] body;
+        CancellationToken cancellation;
+
+        public Request(String method, String url) {
+            this.method = method;
+            this.url = url;
+        }
+
+        public Request header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+
+        public Request body(String contentType, byte[] body) {
+            headers.put("Content-Type", contentType);
+            this.body = body;
+            return this;
+        }
+
+        /**
+         * Aborts the request, even mid-read, when the token is cancelled.
+         */
+        public Request cancellation(CancellationToken token) {
+            this.cancellation = token;
+            return this;
+        }
+    }
+
+    final class Response {
+        private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+        public final int code;
+        public final byte[] body;
+        /**
+         * Time to connect (about 0 on a reused connection), then to send the body and get the first
+         * response byte, then to read the body.
+         */
+        public final long connectMs, firstByteMs, bodyMs;
+
+        public Response(int code, byte[] body, long connectMs, long firstByteMs, long bodyMs) {
+            this.code = code;
+            this.body = body;
+            this.connectMs = connectMs;
+            this.firstByteMs = firstByteMs;
+            this.bodyMs = bodyMs;
+        }
+
+        public boolean isSuccessful() {
+            return code >= 200 && code < 300;
+        }
+
+        public String string() {
+            return new String(body, UTF_8);
+        }
+    }
+
+    final class StreamedResponse implements Closeable {
+        public final int code;
+        /** Already decompressed; empty if the server sent no body. */
+        public final InputStream body;
+
+        public StreamedResponse(int code, InputStream body) {
+            this.code = code;
+            this.body = body;
+        }
+
+        public boolean isSuccessful() {
+            return code >= 200 && code < 300;
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+}
@@ -1,135 +1,103 @@
 package com.app.bubble;
 
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Color;
-import java.util.List; 
+
+import java.util.List;
 
 public class ImageStitcher {
 
+    // Below this confidence a match is treated as "no overlap" and the frames are simply stacked.
+    private static final float MIN_CONFIDENCE = 0.6f;
+    // How many leading frames are compared to find sticky headers and footers.
+    static final int STATIC_DETECTION_FRAMES = 3;
+    // Headers and footers together may never hide more than this share of a frame.
+    private static final float MAX_STATIC_FRACTION = 0.5f;
+    // Rows read per step when hashing a frame.
+    private static final int HASH_BAND_ROWS = 64;
+
     /**
-     * Stitches a list of bitmaps vertically, attempting to remove overlaps caused by scrolling.
+     * Overlap in content rows between two neighbouring frames, or 0 if the match is not trusted.
      */
-    public static Bitmap stitchImages(List<Bitmap> bitmaps) {
-        if (bitmaps == null || bitmaps.isEmpty()) {
-            return null;
-        }
-        if (bitmaps.size() == 1) {
-            return bitmaps.get(0);
-        }
-
-        Bitmap result = bitmaps.get(0);
+    static int findOverlap(int[] previousRows, int[] nextRows, StaticRegions regions) {
+        OverlapFinder.Result match = OverlapFinder.find(previousRows, nextRows, regions.header, regions.footer);
+        return (match.confidence >= MIN_CONFIDENCE) ? match.overlap : 0;
+    }
 
-        for (int i = 1; i < bitmaps.size(); i++) {
-            Bitmap nextBitmap = bitmaps.get(i);
-            if (nextBitmap != null) {
-                result = mergeTwoImages(result, nextBitmap);
-            }
-        }
+    /**
+     * Rows at the top and bottom of the frames that stay put while the content scrolls.
+     */
+    public static final class StaticRegions {
+        public static final StaticRegions NONE = new StaticRegions(0, 0);
 
-        return result;
-    }
+        public final int header;
+        public final int footer;
 
-    private static Bitmap mergeTwoImages(Bitmap top, Bitmap bottom) {
-        // Find how many pixels at the bottom of 'top' match the top of 'bottom'
-        int overlap = findVerticalOverlap(top, bottom);
-
-        int width = Math.min(top.getWidth(), bottom.getWidth());
-        // The new height is the sum of both minus the duplicate overlap part
-        int height = top.getHeight() + bottom.getHeight() - overlap;
-
-        // Limit height to avoid crashes (texture size limit usually 4096 or 8192)
-        // If it gets too long, we stop growing to prevent crash.
-        if (height > 8000) height = 8000;
-
-        try {
-            Bitmap result = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-            Canvas canvas = new Canvas(result);
-
-            // Draw the top image
-            canvas.drawBitmap(top, 0, 0, null);
-
-            // Draw the bottom image, shifted up by the overlap amount so visuals align
-            // relative to the bottom of the top image.
-            // Formula: Y = top.getHeight() - overlap
-            canvas.drawBitmap(bottom, 0, top.getHeight() - overlap, null);
-
-            // Recycle old bitmaps to free memory.
-            // IMPORTANT: Only recycle 'top' if it was an intermediate result (not the original first frame).
-            // For safety in this context, we rely on the GC or caller to clean up originals, 
-            // but explicit recycling here helps significantly with "Burst Mode".
-            // top.recycle(); 
-            // bottom.recycle();
-
-            return result;
-        } catch (OutOfMemoryError e) {
-            e.printStackTrace();
-            return top; // Fallback to just the top image if we run out of RAM
+        StaticRegions(int header, int footer) {
+            this.header = header;
+            this.footer = footer;
         }
     }
 
     /**
-     * Scans for visual overlap between two bitmaps.
-     * Returns the height (in pixels) of the overlapping region.
+     * Compares the first few frames of a burst and finds the toolbar/input-bar rows that are
+     * identical at the same position in every frame. Blank rows at the inner edge of a band are
+     * not counted, since empty space could just as well be scrolling content.
      */
-    private static int findVerticalOverlap(Bitmap top, Bitmap bottom) {
-        int width = Math.min(top.getWidth(), bottom.getWidth());
-        int topHeight = top.getHeight();
-        int bottomHeight = bottom.getHeight();
-
-        // We assume the scroll isn't huge (e.g. not more than 50% of screen at a time)
-        // We look at the bottom 30% of the top image
-        int searchHeight = topHeight / 3; 
-        
-        // Safety check
-        if (searchHeight > bottomHeight) searchHeight = bottomHeight;
-
-        // Define a "signature" row from the bottom of the top image.
-        // CHANGED: Instead of 10px from bottom, use 150px from bottom.
-        // This avoids bottom navigation bars or static footers interfering with the match.
-        int offsetFromBottom = 150;
-        if (topHeight < 300) offsetFromBottom = 20; // fallback for small images
-
-        int referenceRowY = topHeight - offsetFromBottom;
-        int[] referencePixels = new int[width];
-        top.getPixels(referencePixels, 0, width, 0, referenceRowY, width, 1);
-
-        // Scan the top part of the bottom image to find this row
-        int[] comparePixels = new int[width];
-        
-        for (int y = 0; y < searchHeight; y++) {
-            bottom.getPixels(comparePixels, 0, width, 0, y, width, 1);
-
-            if (arraysSimilar(referencePixels, comparePixels)) {
-                // Match found!
-                // The overlap is: (distance from ref row to bottom of top img) + (distance from top of bottom img to match)
-                // Overlap = offsetFromBottom + y
-                return offsetFromBottom + y;
-            }
+    public static StaticRegions detectStaticRegions(List<int[]> frameRows) {
+        int frames = Math.min(frameRows.size(), STATIC_DETECTION_FRAMES);
+        if (frames < 2) return StaticRegions.NONE;
+
+        int height = frameRows.get(0).length;
+        for (int i = 1; i < frames; i++) {
+            if (frameRows.get(i).length != height) return StaticRegions.NONE;
+        }
+
+        int header = 0;
+        int lastSolidHeader = 0;
+        while (header < height && rowIsStatic(frameRows, frames, header)) {
+            header++;
+            if (frameRows.get(0)[header - 1] != OverlapFinder.BLANK_ROW) lastSolidHeader = header;
+        }
+
+        int footer = 0;
+        int lastSolidFooter = 0;
+        while (footer < height - header && rowIsStatic(frameRows, frames, height - 1 - footer)) {
+            footer++;
+            if (frameRows.get(0)[height - footer] != OverlapFinder.BLANK_ROW) lastSolidFooter = footer;
         }
 
-        // No overlap found (moved too fast or completely different content)
-        return 0;
+        header = lastSolidHeader;
+        footer = lastSolidFooter;
+
+        // If most of the frame is "static" the user simply did not scroll; nothing to mask.
+        if (header + footer > height * MAX_STATIC_FRACTION) return StaticRegions.NONE;
+        return new StaticRegions(header, footer);
+    }
+
+    private static boolean rowIsStatic(List<int[]> frameRows, int frames, int y) {
+        int reference = frameRows.get(0)[y];
+        for (int i = 1; i < frames; i++) {
+            if (frameRows.get(i)[y] != reference) return false;
+        }
+        return true;
     }
 
     /**
-     * Compares two rows of pixels. Returns true if they are mostly similar.
-     * We use a threshold because compression/rendering artifacts might make pixels slightly different.
+     * Reduces a frame to one hash per row, reading it a band of rows at a time so no full-frame
+     * pixel array is needed.
      */
-    private static boolean arraysSimilar(int[] row1, int[] row2) {
-        int matches = 0;
-        int totalChecked = 0;
-        
-        // Check every 5th pixel to save CPU
-        for (int i = 0; i < row1.length; i += 5) {
-            totalChecked++;
-            if (row1[i] == row2[i]) {
-                matches++;
-            }
+    static int[] rowHashes(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[] hashes = new int[height];
+        int bandRows = Math.min(height, HASH_BAND_ROWS);
+        int[] band = BufferPool.get().acquireInts(width * bandRows);
+        for (int row = 0; row < height; row += bandRows) {
+            int rows = Math.min(bandRows, height - row);
+            bitmap.getPixels(band, 0, width, 0, row, width, rows);
+            OverlapFinder.rowHashes(band, width, rows, hashes, row);
         }
-
-        // CHANGED: Increased strictness from 0.8 (80%) to 0.9 (90%)
-        // This ensures we don't accidentally stitch lines that just happen to have similar whitespace.
-        return matches > (totalChecked * 0.9);
+        BufferPool.get().release(band);
+        return hashes;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,184 @@
+package com.app.bubble;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+
+import com.google.android.gms.tasks.Tasks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Recognizes a scrolling capture strip by strip while it is still being stitched.
+ *
+ * Register it as the {@link StitchSession.StripListener}: once enough new rows have landed on the
+ * canvas they are copied out, together with {@link #CONTEXT_ROWS} rows above them, and recognized
+ * in the background. Lines cut by the lower edge of a strip are left for the next strip (whose
+ * context includes them whole), and lines seen in both strips are dropped by comparing boxes.
+ * Text is handed to the {@link Listener} as each strip completes, so by the time the capture ends
+ * only the last strip is left to recognize.
+ */
+public class IncrementalOcr implements StitchSession.StripListener {
+
+    /**
+     * Receives results on the main thread.
+     */
+    public interface Listener {
+        /** New lines below everything delivered so far, in document order. */
+        void onLinesRecognized(List<OcrLine> lines);
+
+        /** Everything has been recognized; {@code allLines} is the whole document. */
+        void onComplete(List<OcrLine> allLines);
+
+        void onError();
+    }
+
+    // New rows collected before a strip is recognized; smaller strips would mostly be context.
+    static final int MIN_STRIP_ROWS = 384;
+    // Rows above the new strip recognized again, taller than any line we expect.
+    static final int CONTEXT_ROWS = 160;
+
+    private final OcrEngine ocrEngine;
+    private final Handler mainHandler;
+    // One strip at a time, in canvas order.
+    private final ExecutorService ocrThread = Executors.newSingleThreadExecutor();
+
+    // Guarded by this.
+    private int generation = 0;
+    private int nextTop = 0;
+    private OcrEngine.Options options;
+    private Listener listener;
+
+    // OCR thread only.
+    private int stripGeneration = -1;
+    private List<OcrLine> previousStrip = new ArrayList<>();
+    private List<OcrLine> allLines = new ArrayList<>();
+    private int nextBlock = 0;
+    private boolean failed = false;
+
+    public IncrementalOcr(OcrEngine ocrEngine, Handler mainHandler) {
+        this.ocrEngine = ocrEngine;
+        this.mainHandler = mainHandler;
+    }
+
+    /**
+     * Starts following a new capture. Results of any earlier capture are discarded.
+     */
+    public synchronized void begin(OcrEngine.Options options, Listener listener) {
+        generation++;
+        nextTop = 0;
+        this.options = options;
+        this.listener = listener;
+    }
+
+    /**
+     * Stops following the current capture; nothing more is delivered for it.
+     */
+    public synchronized void cancel() {
+        generation++;
+        listener = null;
+    }
+
+    @Override
+    public synchronized void onStripAppended(StripCanvas canvas, int top, int rowCount) {
+        if (listener == null) return;
+        if (canvas.getHeight() - nextTop >= MIN_STRIP_ROWS) submitStrip(canvas, false);
+    }
+
+    /**
+     * Recognizes whatever is left of the finished canvas and completes the capture. The rows are
+     * copied before returning, so the caller may close the canvas straight after.
+     */
+    public synchronized void finish(StripCanvas canvas) {
+        if (listener == null) return;
+        submitStrip(canvas, true);
+        listener = null;
+    }
+
+    public void shutdown() {
+        cancel();
+        ocrThread.shutdownNow();
+    }
+
+    // Caller holds the lock.
+    private void submitStrip(StripCanvas canvas, final boolean last) {
+        final Listener target = listener;
+        final int gen = generation;
+        final OcrEngine.Options stripOptions = options;
+        final int regionTop = Math.max(0, nextTop - CONTEXT_ROWS);
+        final int regionBottom = canvas.getHeight();
+
+        Bitmap strip = null;
+        boolean unreadable = false;
+        if (regionBottom > nextTop) {
+            try {
+                strip = canvas.copyRegion(regionTop, regionBottom - regionTop);
+            } catch (IOException e) {
+                e.printStackTrace();
+                unreadable = true;
+            }
+            nextTop = regionBottom;
+        }
+        final Bitmap region = strip;
+        final boolean copyFailed = unreadable;
+
+        ocrThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (gen != stripGeneration) {
+                    stripGeneration = gen;
+                    previousStrip = new ArrayList<>();
+                    allLines = new ArrayList<>();
+                    nextBlock = 0;
+                    failed = false;
+                }
+                if (copyFailed) failed = true;
+
+                List<OcrLine> kept = new ArrayList<>();
+                if (region != null) {
+                    try {
+                        List<OcrLine> stripLines = Tasks.await(ocrEngine.recognize(region, stripOptions));
+                        for (OcrLine line : OcrLine.shift(stripLines, regionTop, nextBlock)) {
+                            nextBlock = Math.max(nextBlock, line.block + 1);
+                            if (line.isCutOff(regionTop > 0 ? regionTop : -1, last ? -1 : regionBottom)) continue;
+                            if (line.duplicatesAny(previousStrip)) continue;
+                            kept.add(line);
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        failed = true;
+                    } finally {
+                        BufferPool.get().release(region);
+                    }
+                }
+                previousStrip = kept;
+                allLines.addAll(kept);
+
+                final List<OcrLine> delivered = Collections.unmodifiableList(kept);
+                final List<OcrLine> document = last ? new ArrayList<>(allLines) : null;
+                final boolean error = last && failed;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!isCurrent(gen)) return;
+                        if (!delivered.isEmpty()) target.onLinesRecognized(delivered);
+                        if (!last) return;
+                        if (error) {
+                            target.onError();
+                        } else {
+                            target.onComplete(document);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private synchronized boolean isCurrent(int gen) {
+        return gen == generation;
+    }
+}
@@ -0,0 +1,114 @@
+package com.app.bubble;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.text.Text;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Single entry point for recognizing a captured bitmap: picks the recognizer for the source
+ * language, answers repeat captures of the same region from {@link OcrResultCache}, sends only
+ * the parts {@link TextRegionDetector} considers text to ML Kit, and optionally runs them through
+ * {@link OcrPreprocessor} first. Line boxes always come back in the coordinates of the bitmap
+ * that was passed in.
+ */
+public class OcrEngine {
+
+    /**
+     * How one capture should be recognized.
+     */
+    public static final class Options {
+        public final String languageCode;
+        public final OcrPreprocessor.Mode mode;
+        /** Estimated line height in pixels of the bitmaps that will be recognized, 0 if unknown. */
+        public final float textHeight;
+
+        public Options(String languageCode, OcrPreprocessor.Mode mode, float textHeight) {
+            this.languageCode = languageCode;
+            this.mode = mode;
+            this.textHeight = textHeight;
+        }
+    }
+
+    private final TextRecognizerRegistry recognizers;
+    private final OcrResultCache cache = new OcrResultCache();
+    // Merges region results and frees their buffers. Task callbacks default to the main thread,
+    // which is busy drawing while the capture runs.
+    private final ExecutorService resultThread = Executors.newSingleThreadExecutor();
+
+    public OcrEngine(TextRecognizerRegistry recognizers) {
+        this.recognizers = recognizers;
+    }
+
+    /**
+     * Recognizes the bitmap. The caller keeps ownership and may release it once the task completes.
+     */
+    public Task<List<OcrLine>> recognize(Bitmap bitmap, Options options) {
+        TextRecognizerRegistry.Script script = TextRecognizerRegistry.scriptFor(options.languageCode);
+        final OcrResultCache.Key key = OcrResultCache.keyOf(bitmap, script, options.mode,
+                OcrPreprocessor.downscaleFactor(options.mode, options.textHeight));
+        List<OcrLine> cached = cache.get(key);
+        if (cached != null) return Tasks.forResult(cached);
+
+        final List<Rect> regions = TextRegionDetector.find(bitmap);
+        final List<Task<Text>> tasks = new ArrayList<>();
+        final int[] factors = new int[regions.size()];
+        final List<Bitmap> crops = new ArrayList<>();
+        final List<OcrPreprocessor.Result> prepared = new ArrayList<>();
+        for (int i = 0; i < regions.size(); i++) {
+            Rect region = regions.get(i);
+            OcrPreprocessor.Result image = OcrPreprocessor.process(bitmap, region, options.mode, options.textHeight);
+            if (image != null) {
+                prepared.add(image);
+                factors[i] = image.factor;
+                tasks.add(recognizers.process(script, InputImage.fromByteArray(image.nv21,
+                        image.width, image.height, 0, InputImage.IMAGE_FORMAT_NV21)));
+            } else if (region.width() == bitmap.getWidth() && region.height() == bitmap.getHeight()) {
+                factors[i] = 1;
+                tasks.add(recognizers.process(script, InputImage.fromBitmap(bitmap, 0)));
+            } else {
+                Bitmap crop = BufferPool.get().copyRegion(bitmap, region.left, region.top, region.width(), region.height());
+                crops.add(crop);
+                factors[i] = 1;
+                tasks.add(recognizers.process(script, InputImage.fromBitmap(crop, 0)));
+            }
+        }
+
+        Task<List<OcrLine>> result = Tasks.<Text>whenAllSuccess(tasks).continueWith(resultThread, done -> {
+            List<Text> texts = done.getResult();
+            List<OcrLine> lines = new ArrayList<>();
+            int nextBlock = 0;
+            for (int i = 0; i < texts.size(); i++) {
+                Rect region = regions.get(i);
+                List<OcrLine> regionLines = OcrLine.fromText(texts.get(i), factors[i], region.left, region.top, nextBlock);
+                if (!regionLines.isEmpty()) nextBlock = regionLines.get(regionLines.size() - 1).block + 1;
+                lines.addAll(regionLines);
+            }
+            return Collections.unmodifiableList(lines);
+        });
+        result.addOnCompleteListener(resultThread, t -> {
+            for (Bitmap crop : crops) BufferPool.get().release(crop);
+            for (OcrPreprocessor.Result image : prepared) OcrPreprocessor.release(image);
+        });
+        result.addOnSuccessListener(resultThread, lines -> cache.put(key, lines));
+        return result;
+    }
+
+    public OcrResultCache getCache() { return cache; }
+
+    /**
+     * Stops the result thread. Recognitions still running are not completed.
+     */
+    public void shutdown() {
+        resultThread.shutdown();
+    }
+}
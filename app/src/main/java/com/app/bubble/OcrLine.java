@@ -0,0 +1,129 @@
+package com.app.bubble;
+
+import android.graphics.Rect;
+
+import com.google.mlkit.vision.text.Text;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One recognized line of text with its box in document coordinates.
+ *
+ * ML Kit's {@link Text} cannot be built or combined by hand, so results that are assembled from
+ * several recognitions (tiles, incremental strips) are kept as plain lines instead.
+ */
+public final class OcrLine {
+
+    // Boxes overlapping by more than this share of the smaller one are the same line.
+    private static final float DUPLICATE_OVERLAP = 0.5f;
+
+    public final String text;
+    public final Rect box;
+    // Lines of the same ML Kit block share this number (unique within one document).
+    public final int block;
+
+    public OcrLine(String text, Rect box, int block) {
+        this.text = text;
+        this.box = box;
+        this.block = block;
+    }
+
+    /**
+     * Whether the line touches a cut edge of the region it was recognized in, meaning it may be
+     * only partly visible there. Pass -1 for an edge that is a real document edge.
+     */
+    public boolean isCutOff(int cutTop, int cutBottom) {
+        if (cutTop >= 0 && box.top <= cutTop) return true;
+        return cutBottom >= 0 && box.bottom >= cutBottom;
+    }
+
+    /**
+     * Whether the line's box mostly overlaps the box of any of the given lines, i.e. the same line
+     * was already recognized in an overlapping region.
+     */
+    public boolean duplicatesAny(List<OcrLine> others) {
+        for (OcrLine other : others) {
+            int overlapWidth = Math.min(box.right, other.box.right) - Math.max(box.left, other.box.left);
+            int overlapHeight = Math.min(box.bottom, other.box.bottom) - Math.max(box.top, other.box.top);
+            if (overlapWidth <= 0 || overlapHeight <= 0) continue;
+            long smaller = Math.min((long) box.width() * box.height(), (long) other.box.width() * other.box.height());
+            if (smaller > 0 && (long) overlapWidth * overlapHeight > smaller * DUPLICATE_OVERLAP) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Flattens a recognition result into lines, shifting boxes by the given offset.
+     * @param firstBlock Block number given to the first block of this result.
+     */
+    public static List<OcrLine> fromText(Text visionText, int offsetX, int offsetY, int firstBlock) {
+        return fromText(visionText, 1, offsetX, offsetY, firstBlock);
+    }
+
+    /**
+     * Same as {@link #fromText(Text, int, int, int)} for a result recognized on a downscaled image:
+     * boxes are first multiplied by {@code factor}.
+     */
+    public static List<OcrLine> fromText(Text visionText, int factor, int offsetX, int offsetY, int firstBlock) {
+        List<OcrLine> lines = new ArrayList<>();
+        int block = firstBlock;
+        for (Text.TextBlock textBlock : visionText.getTextBlocks()) {
+            for (Text.Line line : textBlock.getLines()) {
+                Rect box = line.getBoundingBox();
+                if (box == null) continue;
+                Rect shifted = new Rect(box.left * factor + offsetX, box.top * factor + offsetY,
+                        box.right * factor + offsetX, box.bottom * factor + offsetY);
+                lines.add(new OcrLine(line.getText(), shifted, block));
+            }
+            block++;
+        }
+        return lines;
+    }
+
+    /**
+     * Copies the lines with boxes moved down by {@code offsetY} and block numbers moved up by
+     * {@code blockOffset}, e.g. to place a tile's lines into the whole document.
+     */
+    public static List<OcrLine> shift(List<OcrLine> lines, int offsetY, int blockOffset) {
+        List<OcrLine> shifted = new ArrayList<>(lines.size());
+        for (OcrLine line : lines) {
+            Rect box = new Rect(line.box);
+            box.offset(0, offsetY);
+            shifted.add(new OcrLine(line.text, box, line.block + blockOffset));
+        }
+        return shifted;
+    }
+
+    /**
+     * Groups lines back into blocks, in order. Each entry is the block's lines joined by newlines.
+     */
+    public static List<String> blockTexts(List<OcrLine> lines) {
+        List<String> blocks = new ArrayList<>();
+        StringBuilder current = null;
+        int currentBlock = 0;
+        for (OcrLine line : lines) {
+            if (current == null || line.block != currentBlock) {
+                if (current != null) blocks.add(current.toString());
+                current = new StringBuilder(line.text);
+                currentBlock = line.block;
+            } else {
+                current.append('\n').append(line.text);
+            }
+        }
+        if (current != null) blocks.add(current.toString());
+        return blocks;
+    }
+
+    /**
+     * Joins lines the same way {@link Text#getText()} does: one line per row of output.
+     */
+    public static String join(List<OcrLine> lines) {
+        StringBuilder result = new StringBuilder();
+        for (OcrLine line : lines) {
+            if (result.length() > 0) result.append('\n');
+            result.append(line.text);
+        }
+        return result.toString();
+    }
+}
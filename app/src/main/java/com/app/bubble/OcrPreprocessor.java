@@ -0,0 +1,166 @@
+package com.app.bubble;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import java.util.Arrays;
+
+/**
+ * Turns a region of a capture into a small single-channel image for ML Kit.
+ *
+ * The region is read straight from the bitmap, converted to grayscale and, when the text is
+ * large enough, box-downscaled by an integer factor, all in one pass into the Y plane of an NV21
+ * buffer (the chroma plane is left neutral). Dark themes are inverted so the text is always dark on
+ * light. {@link Mode#BINARIZE} additionally applies a local-mean adaptive threshold, which rescues
+ * low-contrast text such as coloured chat bubbles. Every buffer comes from {@link BufferPool}.
+ */
+public final class OcrPreprocessor {
+
+    /** How much to do; selectable per capture mode. */
+    public enum Mode { OFF, GRAYSCALE, BINARIZE }
+
+    /**
+     * A prepared NV21 image. Hand it back with {@link #release(Result)} once ML Kit is done.
+     */
+    public static final class Result {
+        public final byte[] nv21;
+        public final int width, height;
+        /** Each output pixel covers factor x factor source pixels. */
+        public final int factor;
+
+        Result(byte[] nv21, int width, int height, int factor) {
+            this.nv21 = nv21;
+            this.width = width;
+            this.height = height;
+            this.factor = factor;
+        }
+    }
+
+    // Line height (pixels) to shrink text towards; ML Kit reads this size reliably.
+    private static final int TARGET_TEXT_HEIGHT = 24;
+    private static final int MAX_FACTOR = 3;
+    // Average brightness below which the image is treated as a dark theme and inverted.
+    private static final int DARK_MEAN = 110;
+    // Half size of the adaptive threshold window, in output pixels.
+    private static final int WINDOW_RADIUS = 12;
+    // A pixel is ink if it is this many percent darker than its neighbourhood.
+    private static final int THRESHOLD_PERCENT = 15;
+    private static final byte NEUTRAL_CHROMA = (byte) 128;
+
+    // This class is not meant to be instantiated, so we make the constructor private.
+    private OcrPreprocessor() {}
+
+    /**
+     * The factor {@link #process} downscales by for this mode and text height (1 when it does not run).
+     */
+    static int downscaleFactor(Mode mode, float textHeight) {
+        if (mode == Mode.OFF) return 1;
+        int factor = (textHeight > 0) ? (int) (textHeight / TARGET_TEXT_HEIGHT) : 1;
+        return Math.max(1, Math.min(MAX_FACTOR, factor));
+    }
+
+    /**
+     * @param textHeight Estimated line height in bitmap pixels, or 0 if unknown (no downscale).
+     * @return The prepared image, or null if the mode is OFF or the region is too small.
+     */
+    public static Result process(Bitmap source, Rect region, Mode mode, float textHeight) {
+        if (mode == Mode.OFF) return null;
+        int factor = downscaleFactor(mode, textHeight);
+        // NV21 needs even dimensions.
+        int width = (region.width() / factor) & ~1;
+        int height = (region.height() / factor) & ~1;
+        if (width < 2 || height < 2) return null;
+
+        BufferPool pool = BufferPool.get();
+        int frameSize = width * height;
+        byte[] nv21 = pool.acquireBytes(frameSize + frameSize / 2);
+        int sourceWidth = width * factor;
+        int[] row = pool.acquireInts(sourceWidth);
+        int[] sums = pool.acquireInts(width);
+
+        // Grayscale + box downscale into the Y plane.
+        long total = 0;
+        int cell = factor * factor;
+        for (int y = 0; y < height; y++) {
+            Arrays.fill(sums, 0, width, 0);
+            for (int dy = 0; dy < factor; dy++) {
+                source.getPixels(row, 0, sourceWidth, region.left, region.top + y * factor + dy, sourceWidth, 1);
+                for (int x = 0, sx = 0; x < width; x++) {
+                    for (int dx = 0; dx < factor; dx++) sums[x] += PerceptualHash.luminance(row[sx++]);
+                }
+            }
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int gray = sums[x] / cell;
+                nv21[offset + x] = (byte) gray;
+                total += gray;
+            }
+        }
+        pool.release(row);
+
+        if (total / frameSize < DARK_MEAN) {
+            for (int i = 0; i < frameSize; i++) nv21[i] = (byte) (255 - (nv21[i] & 0xFF));
+        }
+        if (mode == Mode.BINARIZE) binarize(nv21, width, height, sums);
+        pool.release(sums);
+
+        Arrays.fill(nv21, frameSize, frameSize + frameSize / 2, NEUTRAL_CHROMA);
+        return new Result(nv21, width, height, factor);
+    }
+
+    public static void release(Result result) {
+        if (result != null) BufferPool.get().release(result.nv21);
+    }
+
+    /**
+     * Local-mean threshold, in place. Column sums over the vertical window slide down the image;
+     * the rows that have already been overwritten but are still needed for the sums are kept in a
+     * small ring of original rows.
+     * @param columnSums Scratch array of at least {@code width} ints.
+     */
+    static void binarize(byte[] y, int width, int height, int[] columnSums) {
+        BufferPool pool = BufferPool.get();
+        int ringRows = WINDOW_RADIUS + 1;
+        byte[] ring = pool.acquireBytes(ringRows * width);
+
+        Arrays.fill(columnSums, 0, width, 0);
+        for (int r = 0; r <= Math.min(WINDOW_RADIUS, height - 1); r++) {
+            for (int x = 0; x < width; x++) columnSums[x] += y[r * width + x] & 0xFF;
+        }
+
+        for (int row = 0; row < height; row++) {
+            // Slide the vertical window: row + radius enters, row - radius - 1 leaves.
+            if (row > 0) {
+                int entering = row + WINDOW_RADIUS;
+                if (entering < height) {
+                    for (int x = 0; x < width; x++) columnSums[x] += y[entering * width + x] & 0xFF;
+                }
+                int leaving = row - WINDOW_RADIUS - 1;
+                if (leaving >= 0) {
+                    int slot = (leaving % ringRows) * width;
+                    for (int x = 0; x < width; x++) columnSums[x] -= ring[slot + x] & 0xFF;
+                }
+            }
+            int windowRows = Math.min(height - 1, row + WINDOW_RADIUS) - Math.max(0, row - WINDOW_RADIUS) + 1;
+            int offset = row * width;
+            System.arraycopy(y, offset, ring, (row % ringRows) * width, width);
+
+            int sum = 0;
+            for (int x = 0; x <= Math.min(WINDOW_RADIUS, width - 1); x++) sum += columnSums[x];
+            for (int x = 0; x < width; x++) {
+                if (x > 0) {
+                    int entering = x + WINDOW_RADIUS;
+                    if (entering < width) sum += columnSums[entering];
+                    int leaving = x - WINDOW_RADIUS - 1;
+                    if (leaving >= 0) sum -= columnSums[leaving];
+                }
+                int windowColumns = Math.min(width - 1, x + WINDOW_RADIUS) - Math.max(0, x - WINDOW_RADIUS) + 1;
+                long count = (long) windowRows * windowColumns;
+                int gray = y[offset + x] & 0xFF;
+                boolean ink = gray * count * 100 < (long) sum * (100 - THRESHOLD_PERCENT);
+                y[offset + x] = ink ? 0 : (byte) 255;
+            }
+        }
+        pool.release(ring);
+    }
+}
@@ -0,0 +1,195 @@
+package com.app.bubble;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Remembers recent OCR results so re-capturing the same region does not run ML Kit again.
+ *
+ * A capture is identified by its size, the recognizer script, preprocessing mode and downscale
+ * factor, a 64-bit {@link PerceptualHash} and its per-row hashes. The perceptual hash finds
+ * candidates quickly (within a few bits counts as near-identical); the row hashes then confirm that
+ * the text itself is the same, since two pages of similar layout can share a coarse hash. Entries
+ * are evicted least-recently-used once their combined weight (characters of text plus stored row
+ * hashes) exceeds the budget.
+ *
+ * Lookups do not scan every entry. The perceptual hash is cut into {@link #HASH_CHUNKS} chunks
+ * and each entry is filed under every chunk value; two hashes within {@link #MAX_HASH_DISTANCE}
+ * bits of each other must agree on at least one whole chunk, so only those buckets are compared.
+ */
+public class OcrResultCache {
+
+    // Perceptual hashes at most this far apart are compared row by row.
+    private static final int MAX_HASH_DISTANCE = 4;
+    // One more chunk than differing bits allowed, so near-identical hashes always share a chunk.
+    private static final int HASH_CHUNKS = MAX_HASH_DISTANCE + 1;
+    private static final int CHUNK_BITS = (64 + HASH_CHUNKS - 1) / HASH_CHUNKS;
+    // Share of rows that must hash identically (cursor blinks and the like may differ).
+    private static final float MIN_MATCHING_ROWS = 0.98f;
+    private static final long MAX_WEIGHT = 1024 * 1024;
+    private static final int BAND_ROWS = 64;
+
+    /**
+     * Identifies one capture. Computing it reads the bitmap once, in bands.
+     */
+    public static final class Key {
+        final TextRecognizerRegistry.Script script;
+        final OcrPreprocessor.Mode mode;
+        // Downscale factor of the preprocessed image; the same pixels read differently at another factor.
+        final int factor;
+        final int width, height;
+        final long hash;
+        final int[] rows;
+
+        Key(TextRecognizerRegistry.Script script, OcrPreprocessor.Mode mode, int factor, int width, int height,
+            long hash, int[] rows) {
+            this.script = script;
+            this.mode = mode;
+            this.factor = factor;
+            this.width = width;
+            this.height = height;
+            this.hash = hash;
+            this.rows = rows;
+        }
+    }
+
+    private static final class Entry {
+        final long id;
+        final Key key;
+        final List<OcrLine> lines;
+        final long weight;
+
+        Entry(long id, Key key, List<OcrLine> lines) {
+            this.id = id;
+            this.key = key;
+            this.lines = lines;
+            // Approximate bytes held: 4 per row hash, 2 per character and some per line, plus a fixed overhead.
+            long weight = key.rows.length * 4L + 64;
+            for (OcrLine line : lines) weight += line.text.length() * 2L + 48;
+            this.weight = weight;
+        }
+    }
+
+    // Insertion id -> entry, in access order (eldest first).
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Chunk bucket (see bucketOf) -> entries whose hash has that chunk value.
+    private final HashMap<Long, List<Entry>> buckets = new HashMap<>();
+    private long nextId = 0;
+    private long totalWeight = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * @param factor Downscale factor the capture will be preprocessed with
+     *               (see {@link OcrPreprocessor#downscaleFactor}).
+     */
+    public static Key keyOf(Bitmap bitmap, TextRecognizerRegistry.Script script, OcrPreprocessor.Mode mode, int factor) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[] rows = new int[height];
+        int bandRows = Math.min(height, BAND_ROWS);
+        int[] band = BufferPool.get().acquireInts(width * bandRows);
+        for (int top = 0; top < height; top += bandRows) {
+            int count = Math.min(bandRows, height - top);
+            bitmap.getPixels(band, 0, width, 0, top, width, count);
+            System.arraycopy(OverlapFinder.rowHashes(band, width, count), 0, rows, top, count);
+        }
+        BufferPool.get().release(band);
+        return new Key(script, mode, factor, width, height, PerceptualHash.of(bitmap), rows);
+    }
+
+    /**
+     * @return The cached result for an identical or near-identical capture, or null.
+     */
+    public synchronized List<OcrLine> get(Key key) {
+        for (int chunk = 0; chunk < HASH_CHUNKS; chunk++) {
+            List<Entry> bucket = buckets.get(bucketOf(key.hash, chunk));
+            if (bucket == null) continue;
+            for (Entry entry : bucket) {
+                if (matches(entry.key, key)) {
+                    hits++;
+                    // Marks the entry as most recently used.
+                    entries.get(entry.id);
+                    return entry.lines;
+                }
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * @param lines An unmodifiable result; it is handed out as is on later hits.
+     */
+    public synchronized void put(Key key, List<OcrLine> lines) {
+        if (lines == null) return;
+        Entry entry = new Entry(nextId++, key, lines);
+        if (entry.weight > MAX_WEIGHT) return;
+
+        entries.put(entry.id, entry);
+        totalWeight += entry.weight;
+        for (int chunk = 0; chunk < HASH_CHUNKS; chunk++) {
+            long bucketKey = bucketOf(key.hash, chunk);
+            List<Entry> bucket = buckets.get(bucketKey);
+            if (bucket == null) buckets.put(bucketKey, bucket = new ArrayList<>());
+            bucket.add(entry);
+        }
+
+        Iterator<Entry> it = entries.values().iterator();
+        while (totalWeight > MAX_WEIGHT && it.hasNext()) {
+            Entry evicted = it.next();
+            totalWeight -= evicted.weight;
+            it.remove();
+            for (int chunk = 0; chunk < HASH_CHUNKS; chunk++) {
+                long bucketKey = bucketOf(evicted.key.hash, chunk);
+                List<Entry> bucket = buckets.get(bucketKey);
+                bucket.remove(evicted);
+                if (bucket.isEmpty()) buckets.remove(bucketKey);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        buckets.clear();
+        totalWeight = 0;
+    }
+
+    public synchronized long getHitCount() { return hits; }
+
+    public synchronized long getMissCount() { return misses; }
+
+    public synchronized float getHitRate() {
+        long lookups = hits + misses;
+        return (lookups == 0) ? 0f : (float) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "OcrResultCache hits=" + hits + " misses=" + misses + " entries=" + entries.size() + " weight=" + totalWeight;
+    }
+
+    // The chunk index in the top bits, that chunk of the hash below.
+    private static long bucketOf(long hash, int chunk) {
+        long value = (hash >>> (chunk * CHUNK_BITS)) & ((1L << CHUNK_BITS) - 1);
+        return ((long) chunk << CHUNK_BITS) | value;
+    }
+
+    private static boolean matches(Key cached, Key key) {
+        if (cached.script != key.script || cached.mode != key.mode || cached.factor != key.factor
+                || cached.width != key.width || cached.height != key.height) return false;
+        if (PerceptualHash.distance(cached.hash, key.hash) > MAX_HASH_DISTANCE) return false;
+
+        int allowedMismatches = (int) (key.rows.length * (1f - MIN_MATCHING_ROWS));
+        int mismatches = 0;
+        for (int i = 0; i < key.rows.length; i++) {
+            if (cached.rows[i] != key.rows[i] && ++mismatches > allowedMismatches) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,200 @@
+package com.app.bubble;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finds the vertical scroll offset between two consecutive screen captures.
+ *
+ * Each frame is reduced once to an array of per-row hashes. The offset is then found by
+ * hashing windows of several consecutive rows and looking them up in a hash table, so the
+ * whole search is linear in the frame height instead of comparing every row with every row.
+ */
+public final class OverlapFinder {
+
+    // Hash value reserved for rows that are a single flat colour (blank lines, padding).
+    // These rows match everywhere, so they are never used on their own to decide an offset.
+    public static final int BLANK_ROW = 0;
+
+    // Number of consecutive rows hashed together when matching.
+    private static final int WINDOW_ROWS = 8;
+    // A window must contain at least this many non-blank rows to be used as a match anchor.
+    private static final int MIN_INFORMATIVE_ROWS = 3;
+    // Windows that appear more often than this in the top frame (repeated list items, etc.)
+    // are too ambiguous to vote.
+    private static final int MAX_POSITIONS_PER_HASH = 4;
+    // Ignore the lowest bits of each colour channel so tiny rendering differences still match.
+    private static final int PIXEL_MASK = 0x00F8F8F8;
+    private static final long WINDOW_PRIME = 1000003L;
+
+    // This class is not meant to be instantiated, so we make the constructor private.
+    private OverlapFinder() {}
+
+    /**
+     * The outcome of an overlap search.
+     */
+    public static final class Result {
+        public static final Result NONE = new Result(0, 0f);
+
+        /** Number of rows at the bottom of the top frame that repeat at the top of the bottom frame. */
+        public final int overlap;
+        /** Fraction (0..1) of non-blank rows inside the overlap that matched exactly. */
+        public final float confidence;
+
+        Result(int overlap, float confidence) {
+            this.overlap = overlap;
+            this.confidence = confidence;
+        }
+    }
+
+    /**
+     * Computes one hash per row from a bulk pixel array (as filled by Bitmap.getPixels).
+     * Rows that contain only one colour get {@link #BLANK_ROW}.
+     */
+    public static int[] rowHashes(int[] pixels, int width, int height) {
+        int[] hashes = new int[height];
+        rowHashes(pixels, width, height, hashes, 0);
+        return hashes;
+    }
+
+    /**
+     * Same as {@link #rowHashes(int[], int, int)}, for a band of rows: the hashes are written to
+     * {@code out} starting at {@code outOffset}.
+     */
+    public static void rowHashes(int[] pixels, int width, int rows, int[] out, int outOffset) {
+        for (int y = 0; y < rows; y++) {
+            int offset = y * width;
+            int first = pixels[offset] & PIXEL_MASK;
+            boolean blank = true;
+            int hash = 0x811C9DC5; // FNV-1a offset basis
+            for (int x = 0; x < width; x++) {
+                int pixel = pixels[offset + x] & PIXEL_MASK;
+                if (pixel != first) blank = false;
+                hash = (hash ^ pixel) * 0x01000193;
+            }
+            if (blank) {
+                out[outOffset + y] = BLANK_ROW;
+            } else {
+                // Keep the blank marker unique.
+                out[outOffset + y] = (hash == BLANK_ROW) ? 1 : hash;
+            }
+        }
+    }
+
+    /**
+     * Finds how many rows at the bottom of the top frame reappear at the top of the bottom frame.
+     * @param topRows Row hashes of the earlier frame.
+     * @param bottomRows Row hashes of the later (scrolled) frame.
+     * @return The best overlap and its confidence, or {@link Result#NONE} if nothing matched.
+     */
+    public static Result find(int[] topRows, int[] bottomRows) {
+        int window = Math.min(WINDOW_ROWS, Math.min(topRows.length, bottomRows.length));
+        if (window == 0) return Result.NONE;
+
+        // 1. Index every informative window of the top frame by its hash.
+        Map<Long, int[]> topWindows = new HashMap<>();
+        long[] topHashes = windowHashes(topRows, window);
+        int[] topInformative = informativeCounts(topRows, window);
+        for (int y = 0; y < topHashes.length; y++) {
+            if (topInformative[y] < Math.min(MIN_INFORMATIVE_ROWS, window)) continue;
+            int[] positions = topWindows.get(topHashes[y]);
+            if (positions == null) {
+                // Slot 0 holds the count, the rest hold row positions.
+                positions = new int[MAX_POSITIONS_PER_HASH + 2];
+                topWindows.put(topHashes[y], positions);
+            }
+            int count = positions[0];
+            if (count <= MAX_POSITIONS_PER_HASH) positions[count + 1] = y;
+            positions[0] = count + 1;
+        }
+        if (topWindows.isEmpty()) return Result.NONE;
+
+        // 2. Slide over the bottom frame and let every matching window vote for a shift.
+        // A shift 'd' means bottom row y shows the same content as top row y + d.
+        int[] votes = new int[topRows.length];
+        long[] bottomHashes = windowHashes(bottomRows, window);
+        int[] bottomInformative = informativeCounts(bottomRows, window);
+        for (int y = 0; y < bottomHashes.length; y++) {
+            if (bottomInformative[y] < Math.min(MIN_INFORMATIVE_ROWS, window)) continue;
+            int[] positions = topWindows.get(bottomHashes[y]);
+            if (positions == null || positions[0] > MAX_POSITIONS_PER_HASH) continue;
+            for (int i = 1; i <= positions[0]; i++) {
+                int shift = positions[i] - y;
+                if (shift >= 0) votes[shift]++;
+            }
+        }
+
+        int bestShift = -1;
+        int bestVotes = 0;
+        for (int shift = 0; shift < votes.length; shift++) {
+            if (votes[shift] > bestVotes) {
+                bestVotes = votes[shift];
+                bestShift = shift;
+            }
+        }
+        if (bestShift < 0) return Result.NONE;
+
+        // 3. Verify the winning shift row by row to get a confidence score.
+        int overlap = Math.min(topRows.length - bestShift, bottomRows.length);
+        int compared = 0;
+        int matched = 0;
+        for (int y = 0; y < overlap; y++) {
+            int top = topRows[y + bestShift];
+            int bottom = bottomRows[y];
+            if (top == BLANK_ROW && bottom == BLANK_ROW) continue;
+            compared++;
+            if (top == bottom) matched++;
+        }
+        float confidence = (compared == 0) ? 0f : (float) matched / compared;
+        return new Result(overlap, confidence);
+    }
+
+    /**
+     * Same as {@link #find(int[], int[])}, but ignores a fixed number of rows at the top and bottom
+     * of both frames (sticky toolbars, input bars). The overlap is measured in content rows only.
+     */
+    public static Result find(int[] topRows, int[] bottomRows, int skipTop, int skipBottom) {
+        if (skipTop == 0 && skipBottom == 0) return find(topRows, bottomRows);
+        int topEnd = topRows.length - skipBottom;
+        int bottomEnd = bottomRows.length - skipBottom;
+        if (topEnd <= skipTop || bottomEnd <= skipTop) return Result.NONE;
+        return find(Arrays.copyOfRange(topRows, skipTop, topEnd), Arrays.copyOfRange(bottomRows, skipTop, bottomEnd));
+    }
+
+    // Polynomial hash of every run of 'window' consecutive rows, updated in O(1) per row.
+    private static long[] windowHashes(int[] rows, int window) {
+        int count = rows.length - window + 1;
+        long[] hashes = new long[Math.max(0, count)];
+        if (count <= 0) return hashes;
+
+        long highPower = 1;
+        for (int i = 1; i < window; i++) highPower *= WINDOW_PRIME;
+
+        long hash = 0;
+        for (int i = 0; i < window; i++) hash = hash * WINDOW_PRIME + rows[i];
+        hashes[0] = hash;
+        for (int y = 1; y < count; y++) {
+            hash = (hash - rows[y - 1] * highPower) * WINDOW_PRIME + rows[y + window - 1];
+            hashes[y] = hash;
+        }
+        return hashes;
+    }
+
+    // Number of non-blank rows inside each window, so flat areas can be skipped.
+    private static int[] informativeCounts(int[] rows, int window) {
+        int count = rows.length - window + 1;
+        int[] counts = new int[Math.max(0, count)];
+        if (count <= 0) return counts;
+
+        int informative = 0;
+        for (int i = 0; i < window; i++) if (rows[i] != BLANK_ROW) informative++;
+        counts[0] = informative;
+        for (int y = 1; y < count; y++) {
+            if (rows[y - 1] != BLANK_ROW) informative--;
+            if (rows[y + window - 1] != BLANK_ROW) informative++;
+            counts[y] = informative;
+        }
+        return counts;
+    }
+}
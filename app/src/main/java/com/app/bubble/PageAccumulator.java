@@ -0,0 +1,177 @@
+package com.app.bubble;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Collects the text of ADD PAGE captures into one document without repeating lines.
+ *
+ * The user scrolls by hand between pages, so the top of a new page usually repeats the bottom of
+ * the previous one. Every line is kept together with a hash of its normalized form (case, spacing
+ * and punctuation removed, so OCR noise does not matter), and each new page is matched against the
+ * tail of the document: the longest run of lines that ends the document and starts the page is
+ * found with a KMP scan over the hashes, and only what follows it is appended. A couple of lines
+ * on either side of the seam may be cut by the capture edges and read as garbage; those are
+ * allowed to not match.
+ */
+public class PageAccumulator {
+
+    // Only this many trailing lines of the document are searched for the overlap.
+    private static final int MAX_TAIL_LINES = 200;
+    // Lines at the seam that may be cut off by the capture edge and fail to match.
+    private static final int MAX_SEAM_SKIP = 2;
+    // A one-line overlap is only trusted if the line is this long; short lines ("Reply", dates)
+    // repeat too often on their own.
+    private static final int MIN_SINGLE_LINE_CHARS = 16;
+
+    private final List<String> lines = new ArrayList<>();
+    private final List<Long> hashes = new ArrayList<>();
+    // Index of the first line of every page that did not continue the previous one.
+    private final List<Integer> pageStarts = new ArrayList<>();
+
+    /**
+     * Adds the lines of a new page.
+     * @return The number of lines that were new.
+     */
+    public int addPage(List<String> pageLines) {
+        List<String> page = new ArrayList<>();
+        List<Long> pageHashes = new ArrayList<>();
+        List<Integer> pageLengths = new ArrayList<>();
+        for (String line : pageLines) {
+            String normalized = normalize(line);
+            if (normalized.isEmpty()) continue; // Stray symbols, nothing to read.
+            page.add(line.trim());
+            pageHashes.add(hash(normalized));
+            pageLengths.add(normalized.length());
+        }
+        if (page.isEmpty()) return 0;
+
+        // Best seam: longest overlap over every combination of skipped head / dropped tail lines.
+        int bestOverlap = 0, bestSkip = 0, bestDrop = 0;
+        for (int drop = 0; drop <= MAX_SEAM_SKIP && drop < lines.size(); drop++) {
+            int tailEnd = lines.size() - drop;
+            int tailStart = Math.max(0, tailEnd - MAX_TAIL_LINES);
+            for (int skip = 0; skip <= MAX_SEAM_SKIP && skip < page.size(); skip++) {
+                int overlap = suffixPrefixOverlap(hashes, tailStart, tailEnd, pageHashes, skip);
+                if (!isTrusted(overlap, pageLengths, skip)) continue;
+                if (overlap > bestOverlap) {
+                    bestOverlap = overlap;
+                    bestSkip = skip;
+                    bestDrop = drop;
+                }
+            }
+        }
+
+        if (bestOverlap > 0) {
+            // The dropped lines were cut at the previous page's edge; the new page has them whole.
+            for (int i = 0; i < bestDrop; i++) removeLast();
+        } else {
+            bestSkip = 0;
+            pageStarts.add(lines.size());
+        }
+
+        int added = 0;
+        for (int i = bestSkip + bestOverlap; i < page.size(); i++) {
+            lines.add(page.get(i));
+            hashes.add(pageHashes.get(i));
+            added++;
+        }
+        return added;
+    }
+
+    /**
+     * The document so far: lines of continued pages are joined, unrelated pages are separated
+     * by a blank line.
+     */
+    public String getText() {
+        StringBuilder result = new StringBuilder();
+        int nextPage = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            if (i > 0) {
+                boolean pageBreak = nextPage < pageStarts.size() && pageStarts.get(nextPage) == i;
+                result.append(pageBreak ? "\n\n" : "\n");
+            }
+            while (nextPage < pageStarts.size() && pageStarts.get(nextPage) <= i) nextPage++;
+            result.append(lines.get(i));
+        }
+        return result.toString();
+    }
+
+    public boolean isEmpty() { return lines.isEmpty(); }
+
+    public int getLineCount() { return lines.size(); }
+
+    public void clear() {
+        lines.clear();
+        hashes.clear();
+        pageStarts.clear();
+    }
+
+    private void removeLast() {
+        int last = lines.size() - 1;
+        lines.remove(last);
+        hashes.remove(last);
+        // A page whose only lines were dropped no longer starts anywhere.
+        while (!pageStarts.isEmpty() && pageStarts.get(pageStarts.size() - 1) >= lines.size()) {
+            pageStarts.remove(pageStarts.size() - 1);
+        }
+    }
+
+    private static boolean isTrusted(int overlap, List<Integer> pageLengths, int skip) {
+        if (overlap >= 2) return true;
+        return overlap == 1 && pageLengths.get(skip) >= MIN_SINGLE_LINE_CHARS;
+    }
+
+    /**
+     * Length of the longest prefix of {@code pattern[from..]} that is also a suffix of
+     * {@code text[start..end)}, using the KMP failure function of the pattern.
+     */
+    static int suffixPrefixOverlap(List<Long> text, int start, int end, List<Long> pattern, int from) {
+        int m = pattern.size() - from;
+        if (m <= 0 || end <= start) return 0;
+
+        int[] failure = new int[m];
+        for (int i = 1, k = 0; i < m; i++) {
+            while (k > 0 && !pattern.get(from + i).equals(pattern.get(from + k))) k = failure[k - 1];
+            if (pattern.get(from + i).equals(pattern.get(from + k))) k++;
+            failure[i] = k;
+        }
+
+        int matched = 0;
+        for (int i = start; i < end; i++) {
+            while (matched > 0 && (matched == m || !text.get(i).equals(pattern.get(from + matched)))) {
+                matched = failure[matched - 1];
+            }
+            if (text.get(i).equals(pattern.get(from + matched))) matched++;
+        }
+        return matched;
+    }
+
+    // Lower-case letters, digits and combining marks (Indic vowel signs) only, so spacing and
+    // punctuation misreads still match.
+    static String normalize(String line) {
+        StringBuilder result = new StringBuilder(line.length());
+        String lower = line.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); ) {
+            int codePoint = lower.codePointAt(i);
+            int type = Character.getType(codePoint);
+            if (Character.isLetterOrDigit(codePoint)
+                    || type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK) {
+                result.appendCodePoint(codePoint);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return result.toString();
+    }
+
+    // 64-bit FNV-1a over the UTF-16 units of the normalized line.
+    private static long hash(String normalized) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,155 @@
+package com.app.bubble;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+
+import com.google.android.gms.tasks.Tasks;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs manual "ADD PAGE" captures through capture → OCR → accumulate as separate stages.
+ *
+ * Every page gets a sequence number when the button is tapped ({@link #reserve()}), so the tap
+ * returns at once and the next page can be captured while earlier ones are still being read.
+ * A fixed number of pages may be in flight; when they are all taken, {@link #reserve()} refuses
+ * instead of letting cropped bitmaps pile up. OCR results are held in a reorder buffer and handed
+ * to the {@link Listener} strictly in tap order, whatever order the recognizer finishes in.
+ */
+public class PagePipeline {
+
+    /**
+     * Receives recognized pages on the main thread, in capture order.
+     */
+    public interface Listener {
+        /**
+         * @param lines The recognized lines, or null if the capture or OCR failed.
+         * @param scale Scale the page was captured at (see {@link ScreenCaptureSession.FrameCallback}).
+         */
+        void onPageRecognized(int sequence, List<OcrLine> lines, float scale);
+    }
+
+    // Pages captured but not yet accumulated. Each is one cropped bitmap held in memory.
+    private static final int MAX_IN_FLIGHT = 6;
+    // ML Kit queues work internally, so two workers are enough to overlap decode and recognition.
+    private static final int OCR_THREADS = 2;
+
+    private final Handler mainHandler;
+    private final OcrEngine ocrEngine;
+    private final Listener listener;
+    private final ExecutorService ocrPool = Executors.newFixedThreadPool(OCR_THREADS);
+    private final Semaphore slots = new Semaphore(MAX_IN_FLIGHT);
+    // Set by shutdown(); captures still arriving afterwards are dropped.
+    private volatile boolean shutdown = false;
+
+    // Touched on the main thread only.
+    private int nextSequence = 0;
+    private int nextToDeliver = 0;
+    private final TreeMap<Integer, Page> reorderBuffer = new TreeMap<>();
+    private Runnable onDrained;
+
+    private static final class Page {
+        final List<OcrLine> lines;
+        final float scale;
+
+        Page(List<OcrLine> lines, float scale) {
+            this.lines = lines;
+            this.scale = scale;
+        }
+    }
+
+    public PagePipeline(Handler mainHandler, OcrEngine ocrEngine, Listener listener) {
+        this.mainHandler = mainHandler;
+        this.ocrEngine = ocrEngine;
+        this.listener = listener;
+    }
+
+    /**
+     * Claims a sequence number for a page about to be captured. Call on the main thread.
+     * @return The sequence number, or -1 if too many pages are still being processed.
+     */
+    public int reserve() {
+        if (shutdown || !slots.tryAcquire()) return -1;
+        return nextSequence++;
+    }
+
+    /**
+     * Hands over the captured page for a reserved sequence number. May be called from any thread;
+     * the pipeline takes ownership of the (pooled) bitmap. Pass null if the capture failed, so the
+     * sequence is not left waiting.
+     * @param options Source language and preprocessing for this page.
+     */
+    public void submit(final int sequence, final Bitmap page, final float scale, final OcrEngine.Options options) {
+        if (shutdown) {
+            BufferPool.get().release(page);
+            return;
+        }
+        if (page == null) {
+            mainHandler.post(() -> deliver(sequence, new Page(null, scale)));
+            return;
+        }
+        try {
+            ocrPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    List<OcrLine> lines = null;
+                    try {
+                        lines = Tasks.await(ocrEngine.recognize(page, options));
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    } finally {
+                        BufferPool.get().release(page);
+                    }
+                    final Page result = new Page(lines, scale);
+                    mainHandler.post(() -> deliver(sequence, result));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shut down between the check above and here.
+            BufferPool.get().release(page);
+        }
+    }
+
+    /**
+     * Runs the action on the main thread once every reserved page has been delivered
+     * (immediately if nothing is pending).
+     */
+    public void whenDrained(Runnable action) {
+        if (nextToDeliver == nextSequence) {
+            action.run();
+        } else {
+            onDrained = action;
+        }
+    }
+
+    /**
+     * Stops the OCR workers. Pages still in flight are dropped, and so are pages submitted later.
+     */
+    public void shutdown() {
+        shutdown = true;
+        ocrPool.shutdownNow();
+        reorderBuffer.clear();
+        onDrained = null;
+    }
+
+    // Main thread: park the result, then flush every page whose predecessors are all done.
+    private void deliver(int sequence, Page page) {
+        if (shutdown) return;
+        reorderBuffer.put(sequence, page);
+        while (!reorderBuffer.isEmpty() && reorderBuffer.firstKey() == nextToDeliver) {
+            Page next = reorderBuffer.remove(nextToDeliver);
+            listener.onPageRecognized(nextToDeliver, next.lines, next.scale);
+            nextToDeliver++;
+            slots.release();
+        }
+        if (onDrained != null && nextToDeliver == nextSequence) {
+            Runnable action = onDrained;
+            onDrained = null;
+            action.run();
+        }
+    }
+}
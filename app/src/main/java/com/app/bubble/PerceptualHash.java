@@ -0,0 +1,74 @@
+package com.app.bubble;
+
+import android.graphics.Bitmap;
+
+/**
+ * A cheap 64-bit "difference hash" of a bitmap.
+ *
+ * The image is reduced to a 9x8 grid of average brightness and each bit records whether a cell is
+ * brighter than its right neighbour. Visually identical frames give the same hash, small changes
+ * flip a few bits, and a scrolled page gives a very different hash.
+ */
+public final class PerceptualHash {
+
+    private static final int GRID_COLUMNS = 9;
+    private static final int GRID_ROWS = 8;
+    // Pixel rows sampled inside each grid row; more than one so thin text lines are not missed.
+    private static final int SAMPLES_PER_ROW = 4;
+    // Only every n-th pixel of a sampled row is averaged.
+    private static final int COLUMN_STEP = 2;
+
+    // This class is not meant to be instantiated, so we make the constructor private.
+    private PerceptualHash() {}
+
+    /**
+     * Computes the hash with a handful of bulk row reads.
+     */
+    public static long of(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        long[] sums = new long[GRID_COLUMNS];
+        int[] counts = new int[GRID_COLUMNS];
+        int[] row = BufferPool.get().acquireInts(width);
+
+        long hash = 0;
+        for (int gridRow = 0; gridRow < GRID_ROWS; gridRow++) {
+            for (int c = 0; c < GRID_COLUMNS; c++) { sums[c] = 0; counts[c] = 0; }
+
+            for (int sample = 0; sample < SAMPLES_PER_ROW; sample++) {
+                int y = (int) ((gridRow + (sample + 0.5f) / SAMPLES_PER_ROW) * height / GRID_ROWS);
+                bitmap.getPixels(row, 0, width, 0, Math.min(y, height - 1), width, 1);
+                for (int x = 0; x < width; x += COLUMN_STEP) {
+                    int cell = x * GRID_COLUMNS / width;
+                    sums[cell] += luminance(row[x]);
+                    counts[cell]++;
+                }
+            }
+
+            for (int c = 0; c < GRID_COLUMNS - 1; c++) {
+                long left = (counts[c] == 0) ? 0 : sums[c] / counts[c];
+                long right = (counts[c + 1] == 0) ? 0 : sums[c + 1] / counts[c + 1];
+                hash <<= 1;
+                if (left > right) hash |= 1;
+            }
+        }
+
+        BufferPool.get().release(row);
+        return hash;
+    }
+
+    /**
+     * Number of differing bits; 0 means visually identical.
+     */
+    public static int distance(long first, long second) {
+        return Long.bitCount(first ^ second);
+    }
+
+    // Integer approximation of Rec. 601 luma.
+    static int luminance(int color) {
+        int r = (color >> 16) & 0xFF;
+        int g = (color >> 8) & 0xFF;
+        int b = color & 0xFF;
+        return (r * 299 + g * 587 + b * 114) / 1000;
+    }
+}
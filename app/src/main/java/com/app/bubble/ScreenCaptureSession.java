@@ -0,0 +1,313 @@
+package com.app.bubble;
+
+import android.content.Context;
+import android.graphics.PixelFormat;
+import android.hardware.display.DisplayManager;
+import android.hardware.display.VirtualDisplay;
+import android.media.Image;
+import android.media.ImageReader;
+import android.media.projection.MediaProjection;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.DisplayMetrics;
+import android.view.Display;
+import android.view.WindowManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A long-lived screen mirror that hands out the latest frame on demand.
+ *
+ * The VirtualDisplay and ImageReader are created once per MediaProjection and kept warm while the
+ * bubble or the two-line overlay is in use, so a capture costs one frame interval instead of a full
+ * display setup. After a period without requests the display is detached from its surface (paused)
+ * and re-attached on the next request. Rotation and resolution changes rebuild the reader in place.
+ *
+ * The mirror can run at a reduced scale (see {@link #setScale(float)}); frames then arrive smaller
+ * than the screen and callers map their screen-space crop rectangles with the scale they are given.
+ *
+ * All frame callbacks run on the session's own background thread.
+ */
+public class ScreenCaptureSession implements DisplayManager.DisplayListener {
+
+    /**
+     * Receives a captured frame. The image is only valid during the call and must not be closed.
+     */
+    public interface FrameCallback {
+        /**
+         * @param scale Size of the frame relative to the real screen (1 = full resolution).
+         */
+        void onFrame(Image image, float scale);
+        void onError(String message);
+    }
+
+    // Pause the mirror after this long without any capture request.
+    private static final long IDLE_TIMEOUT_MS = 15000;
+    // How long a "fresh frame" request waits for the screen to redraw before using what we have.
+    private static final long FRESH_FRAME_TIMEOUT_MS = 300;
+    // One image held as "latest", one being acquired, one spare for the producer.
+    private static final int MAX_IMAGES = 3;
+
+    private final Context context;
+    private final MediaProjection mediaProjection;
+    private final DisplayManager displayManager;
+    private final HandlerThread captureThread;
+    private final Handler captureHandler;
+
+    private VirtualDisplay virtualDisplay;
+    private ImageReader imageReader;
+    // Real screen size...
+    private int width, height, density;
+    // ...and the size the mirror actually renders at.
+    private float scale = 1f;
+    private int captureWidth, captureHeight, captureDensity;
+    private boolean paused = true;
+    private boolean released = false;
+
+    // The most recent frame, kept open so it can be handed out without waiting.
+    private Image latestImage;
+    private final List<PendingRequest> pendingRequests = new ArrayList<>();
+
+    private static final class PendingRequest {
+        final FrameCallback callback;
+        final long requestedAtNanos;
+
+        PendingRequest(FrameCallback callback, long requestedAtNanos) {
+            this.callback = callback;
+            this.requestedAtNanos = requestedAtNanos;
+        }
+    }
+
+    public ScreenCaptureSession(Context context, MediaProjection mediaProjection) {
+        this.context = context.getApplicationContext();
+        this.mediaProjection = mediaProjection;
+        this.displayManager = (DisplayManager) context.getSystemService(Context.DISPLAY_SERVICE);
+
+        captureThread = new HandlerThread("ScreenCapture");
+        captureThread.start();
+        captureHandler = new Handler(captureThread.getLooper());
+    }
+
+    /**
+     * Makes sure the mirror is running, e.g. when the bubble is touched or an overlay appears.
+     * Cheap to call repeatedly; it also pushes back the idle timeout.
+     */
+    public void warmUp() {
+        captureHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                ensureRunning();
+            }
+        });
+    }
+
+    /**
+     * Changes the capture resolution. Takes effect for frames produced after the rebuild; call it
+     * before {@link #requestFrame} and never in the middle of a burst that is being stitched.
+     * @param newScale Factor in (0, 1] applied to the real screen size.
+     */
+    public void setScale(final float newScale) {
+        captureHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                float clamped = Math.max(0.1f, Math.min(1f, newScale));
+                if (clamped == scale) return;
+                scale = clamped;
+                if (virtualDisplay != null) rebuildReader();
+            }
+        });
+    }
+
+    /**
+     * Requests a frame.
+     * @param fresh True to wait for a frame drawn after this call (e.g. after our own overlay was
+     *              removed), false to accept the most recent frame immediately.
+     */
+    public void requestFrame(final boolean fresh, final FrameCallback callback) {
+        final long requestedAt = System.nanoTime();
+        captureHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!ensureRunning()) {
+                    callback.onError("Capture unavailable");
+                    return;
+                }
+                if (!fresh && latestImage != null) {
+                    callback.onFrame(latestImage, scaleOf(latestImage));
+                    return;
+                }
+                final PendingRequest request = new PendingRequest(callback, requestedAt);
+                pendingRequests.add(request);
+                captureHandler.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Nothing new was drawn (static screen): fall back to the latest frame.
+                        if (!pendingRequests.remove(request)) return;
+                        if (latestImage != null) {
+                            request.callback.onFrame(latestImage, scaleOf(latestImage));
+                        } else {
+                            request.callback.onError("No frame available");
+                        }
+                    }
+                }, FRESH_FRAME_TIMEOUT_MS);
+            }
+        });
+    }
+
+    /**
+     * Tears everything down. The session cannot be used afterwards.
+     */
+    public void release() {
+        captureHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                released = true;
+                captureHandler.removeCallbacksAndMessages(null);
+                displayManager.unregisterDisplayListener(ScreenCaptureSession.this);
+                for (PendingRequest request : pendingRequests) request.callback.onError("Capture stopped");
+                pendingRequests.clear();
+                closeLatestImage();
+                if (virtualDisplay != null) { virtualDisplay.release(); virtualDisplay = null; }
+                if (imageReader != null) { imageReader.close(); imageReader = null; }
+                captureThread.quitSafely();
+            }
+        });
+    }
+
+    // --- DisplayManager.DisplayListener: rebuild on rotation / resolution changes ---
+
+    @Override
+    public void onDisplayAdded(int displayId) {}
+
+    @Override
+    public void onDisplayRemoved(int displayId) {}
+
+    @Override
+    public void onDisplayChanged(int displayId) {
+        if (displayId != Display.DEFAULT_DISPLAY || virtualDisplay == null) return;
+        DisplayMetrics metrics = readMetrics();
+        if (metrics.widthPixels == width && metrics.heightPixels == height && metrics.densityDpi == density) return;
+
+        width = metrics.widthPixels;
+        height = metrics.heightPixels;
+        density = metrics.densityDpi;
+        rebuildReader();
+    }
+
+    // Swaps in a reader of the current capture size and resizes the display to match.
+    private void rebuildReader() {
+        updateCaptureSize();
+        ImageReader oldReader = imageReader;
+        closeLatestImage();
+        imageReader = newReader();
+        virtualDisplay.resize(captureWidth, captureHeight, captureDensity);
+        virtualDisplay.setSurface(paused ? null : imageReader.getSurface());
+        oldReader.close();
+    }
+
+    private void updateCaptureSize() {
+        captureWidth = Math.max(1, Math.round(width * scale));
+        captureHeight = Math.max(1, Math.round(height * scale));
+        captureDensity = Math.max(1, Math.round(density * scale));
+    }
+
+    private float scaleOf(Image image) {
+        return (float) image.getWidth() / width;
+    }
+
+    // Creates the display on first use and resumes it if paused. Runs on the capture thread.
+    private boolean ensureRunning() {
+        if (released) return false;
+
+        captureHandler.removeCallbacks(pauseRunnable);
+        captureHandler.postDelayed(pauseRunnable, IDLE_TIMEOUT_MS);
+
+        if (virtualDisplay == null) {
+            DisplayMetrics metrics = readMetrics();
+            width = metrics.widthPixels;
+            height = metrics.heightPixels;
+            density = metrics.densityDpi;
+            updateCaptureSize();
+            imageReader = newReader();
+            try {
+                virtualDisplay = mediaProjection.createVirtualDisplay("ScreenCapture",
+                        captureWidth, captureHeight, captureDensity,
+                        DisplayManager.VIRTUAL_DISPLAY_FLAG_AUTO_MIRROR,
+                        imageReader.getSurface(), null, captureHandler);
+            } catch (Exception e) {
+                e.printStackTrace();
+                imageReader.close();
+                imageReader = null;
+                return false;
+            }
+            displayManager.registerDisplayListener(this, captureHandler);
+            paused = false;
+        } else if (paused) {
+            virtualDisplay.setSurface(imageReader.getSurface());
+            paused = false;
+        }
+        return true;
+    }
+
+    // Detaches the mirror from its surface so the system stops rendering into it. The VirtualDisplay
+    // itself is kept, as a projection may only create one on newer Android.
+    private final Runnable pauseRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (virtualDisplay == null || paused) return;
+            virtualDisplay.setSurface(null);
+            paused = true;
+            // The held frame goes stale while paused.
+            closeLatestImage();
+        }
+    };
+
+    private ImageReader newReader() {
+        ImageReader reader = ImageReader.newInstance(captureWidth, captureHeight, PixelFormat.RGBA_8888, MAX_IMAGES);
+        reader.setOnImageAvailableListener(new ImageReader.OnImageAvailableListener() {
+            @Override
+            public void onImageAvailable(ImageReader reader) {
+                if (reader != imageReader) return;
+                Image image;
+                try {
+                    image = reader.acquireLatestImage();
+                } catch (IllegalStateException e) {
+                    e.printStackTrace();
+                    return;
+                }
+                if (image == null) return;
+
+                closeLatestImage();
+                latestImage = image;
+                deliverFreshFrame(image);
+            }
+        }, captureHandler);
+        return reader;
+    }
+
+    // Serves every waiting request that asked for a frame drawn after its request time.
+    private void deliverFreshFrame(Image image) {
+        for (int i = 0; i < pendingRequests.size(); i++) {
+            PendingRequest request = pendingRequests.get(i);
+            if (image.getTimestamp() >= request.requestedAtNanos) {
+                pendingRequests.remove(i--);
+                request.callback.onFrame(image, scaleOf(image));
+            }
+        }
+    }
+
+    private void closeLatestImage() {
+        if (latestImage != null) {
+            latestImage.close();
+            latestImage = null;
+        }
+    }
+
+    private DisplayMetrics readMetrics() {
+        DisplayMetrics metrics = new DisplayMetrics();
+        WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        windowManager.getDefaultDisplay().getRealMetrics(metrics);
+        return metrics;
+    }
+}
@@ -0,0 +1,63 @@
+package com.app.bubble;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Translates text line by line, sending only the lines that have not been translated before.
+ *
+ * OCR text is a list of lines, and consecutive captures of the same screen mostly share them (a
+ * chat with one new message, the same page in another target language after a switch back). Each
+ * line is looked up in the {@link TranslationCache} on its own; the missing ones go to the
+ * {@link BatchTranslator} together, are cached individually, and the result is reassembled in the
+ * original order.
+ *
+ * Blocking; call it off the main thread.
+ */
+public class SegmentTranslator {
+
+    private final TranslationCache cache;
+    private final BatchTranslator batchTranslator;
+
+    public SegmentTranslator(TranslationCache cache, BatchTranslator batchTranslator) {
+        this.cache = cache;
+        this.batchTranslator = batchTranslator;
+    }
+
+    /**
+     * @param cancellation Aborts the network requests when cancelled, or null.
+     * @return The translation, or null if the network request failed or was cancelled.
+     */
+    public String translate(String sourceLang, String targetLang, String text, CancellationToken cancellation) {
+        String[] segments = text.split("\n", -1);
+        // Each distinct line once, in order of first appearance; null until translated.
+        Map<String, String> translations = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String segment : segments) {
+            String line = segment.trim();
+            if (line.isEmpty() || translations.containsKey(line)) continue;
+            String cached = cache.get(sourceLang, targetLang, line);
+            translations.put(line, cached);
+            if (cached == null) missing.add(line);
+        }
+
+        if (!missing.isEmpty()) {
+            String[] translated = batchTranslator.translate(sourceLang, targetLang, missing, cancellation);
+            if (translated == null) return null;
+            for (int i = 0; i < missing.size(); i++) {
+                translations.put(missing.get(i), translated[i]);
+                cache.put(sourceLang, targetLang, missing.get(i), translated[i]);
+            }
+        }
+
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < segments.length; i++) {
+            if (i > 0) result.append('\n');
+            String line = segments[i].trim();
+            if (!line.isEmpty()) result.append(translations.get(line));
+        }
+        return result.toString();
+    }
+}
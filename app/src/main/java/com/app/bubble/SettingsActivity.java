@@ -7,6 +7,8 @@ import android.os.Bundle;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
+import android.widget.CheckBox;
+import android.widget.CompoundButton;
 import android.widget.EditText;
 import android.widget.Spinner;
 
@@ -20,9 +22,21 @@ public class SettingsActivity extends Activity {
     public static final String PREFS_NAME = "BubbleTranslatorPrefs";
     public static final String KEY_TIMER_DURATION = "CropTimerDuration";
     public static final String KEY_API_KEY = "GeminiApiKey"; // New constant for the API key
+    public static final String KEY_CAPTURE_SCALE = "CaptureScale"; // Float in (0, 1], or 0 for automatic
+    public static final String KEY_OCR_MODE_BUBBLE = "OcrModeBubble"; // OcrPreprocessor.Mode name for bubble captures
+    public static final String KEY_OCR_MODE_PAGES = "OcrModePages"; // OcrPreprocessor.Mode name for ADD PAGE captures
+    public static final String KEY_LINE_HEIGHT = "TypicalLineHeight"; // Float, remembered by the service for CaptureScalePolicy
+    public static final String KEY_HEDGE_TRANSLATION = "HedgeTranslation"; // Boolean, backup request when translation is slow
+
+    // Values for the entries of R.array.capture_scale_options.
+    private static final float[] CAPTURE_SCALES = {CaptureScalePolicy.AUTO, 1f, 0.75f, 0.5f};
 
     private Spinner cropTimerSpinner;
+    private Spinner captureScaleSpinner;
+    private Spinner ocrModeBubbleSpinner;
+    private Spinner ocrModePagesSpinner;
     private EditText apiKeyEditText; // New variable for the EditText field
+    private CheckBox hedgeTranslationCheckBox;
     private SharedPreferences sharedPreferences;
 
     @Override
@@ -33,6 +47,7 @@ public class SettingsActivity extends Activity {
         sharedPreferences = getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         cropTimerSpinner = findViewById(R.id.crop_timer_spinner);
         apiKeyEditText = findViewById(R.id.api_key_edit_text); // Find the new EditText
+        hedgeTranslationCheckBox = findViewById(R.id.hedge_translation_checkbox);
 
         // --- Setup for Crop Timer Spinner ---
         ArrayAdapter<CharSequence> adapter = ArrayAdapter.createFromResource(
@@ -43,6 +58,20 @@ public class SettingsActivity extends Activity {
         adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         cropTimerSpinner.setAdapter(adapter);
 
+        // --- Setup for Capture Scale Spinner ---
+        captureScaleSpinner = findViewById(R.id.capture_scale_spinner);
+        ArrayAdapter<CharSequence> scaleAdapter = ArrayAdapter.createFromResource(
+            this,
+            R.array.capture_scale_options,
+            android.R.layout.simple_spinner_item
+        );
+        scaleAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        captureScaleSpinner.setAdapter(scaleAdapter);
+
+        // --- Setup for the OCR image cleanup Spinners ---
+        ocrModeBubbleSpinner = setupOcrModeSpinner(R.id.ocr_mode_bubble_spinner);
+        ocrModePagesSpinner = setupOcrModeSpinner(R.id.ocr_mode_pages_spinner);
+
         // Load the saved preferences and set the views to the correct state.
         loadCurrentSettings();
 
@@ -58,6 +87,29 @@ public class SettingsActivity extends Activity {
 					// Do nothing.
 				}
 			});
+        captureScaleSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+				@Override
+				public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+					SharedPreferences.Editor editor = sharedPreferences.edit();
+					editor.putFloat(KEY_CAPTURE_SCALE, CAPTURE_SCALES[position]);
+					editor.apply();
+				}
+
+				@Override
+				public void onNothingSelected(AdapterView<?> parent) {
+					// Do nothing.
+				}
+			});
+        ocrModeBubbleSpinner.setOnItemSelectedListener(ocrModeListener(KEY_OCR_MODE_BUBBLE));
+        ocrModePagesSpinner.setOnItemSelectedListener(ocrModeListener(KEY_OCR_MODE_PAGES));
+        hedgeTranslationCheckBox.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+				@Override
+				public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+					SharedPreferences.Editor editor = sharedPreferences.edit();
+					editor.putBoolean(KEY_HEDGE_TRANSLATION, isChecked);
+					editor.apply();
+				}
+			});
 
         // NEW: Load the AdMob Banner Ad in the footer
         AdView mAdView = findViewById(R.id.adView);
@@ -85,9 +137,22 @@ public class SettingsActivity extends Activity {
         }
         cropTimerSpinner.setSelection(position);
 
+        // Load the saved capture scale.
+        float savedScale = sharedPreferences.getFloat(KEY_CAPTURE_SCALE, CaptureScalePolicy.AUTO);
+        for (int i = 0; i < CAPTURE_SCALES.length; i++) {
+            if (CAPTURE_SCALES[i] == savedScale) captureScaleSpinner.setSelection(i);
+        }
+
+        // Load the saved OCR image cleanup modes.
+        ocrModeBubbleSpinner.setSelection(readOcrMode(sharedPreferences, KEY_OCR_MODE_BUBBLE).ordinal());
+        ocrModePagesSpinner.setSelection(readOcrMode(sharedPreferences, KEY_OCR_MODE_PAGES).ordinal());
+
         // Load the saved API key.
         String savedApiKey = sharedPreferences.getString(KEY_API_KEY, "");
         apiKeyEditText.setText(savedApiKey);
+
+        // Load the backup translation request setting.
+        hedgeTranslationCheckBox.setChecked(sharedPreferences.getBoolean(KEY_HEDGE_TRANSLATION, false));
     }
 
     private void saveTimerSetting(int position) {
@@ -113,6 +178,46 @@ public class SettingsActivity extends Activity {
         editor.apply();
     }
 
+    /**
+     * Reads an OCR image cleanup mode; no cleanup unless the user picked one.
+     */
+    public static OcrPreprocessor.Mode readOcrMode(SharedPreferences prefs, String key) {
+        try {
+            return OcrPreprocessor.Mode.valueOf(prefs.getString(key, OcrPreprocessor.Mode.OFF.name()));
+        } catch (IllegalArgumentException e) {
+            return OcrPreprocessor.Mode.OFF;
+        }
+    }
+
+    private Spinner setupOcrModeSpinner(int spinnerId) {
+        Spinner spinner = findViewById(spinnerId);
+        ArrayAdapter<CharSequence> adapter = ArrayAdapter.createFromResource(
+            this,
+            R.array.ocr_mode_options,
+            android.R.layout.simple_spinner_item
+        );
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinner.setAdapter(adapter);
+        return spinner;
+    }
+
+    // Spinner positions follow the order of OcrPreprocessor.Mode.
+    private AdapterView.OnItemSelectedListener ocrModeListener(final String key) {
+        return new AdapterView.OnItemSelectedListener() {
+				@Override
+				public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+					SharedPreferences.Editor editor = sharedPreferences.edit();
+					editor.putString(key, OcrPreprocessor.Mode.values()[position].name());
+					editor.apply();
+				}
+
+				@Override
+				public void onNothingSelected(AdapterView<?> parent) {
+					// Do nothing.
+				}
+			};
+    }
+
     private void saveApiKey() {
         SharedPreferences.Editor editor = sharedPreferences.edit();
         String apiKeyToSave = apiKeyEditText.getText().toString().trim();
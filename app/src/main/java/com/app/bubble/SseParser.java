@@ -0,0 +1,95 @@
+package com.app.bubble;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Reads a server-sent-events stream and hands over each event's data as soon as it is complete.
+ *
+ * Bytes are split into lines before decoding, so a multi-byte character cut across two network
+ * reads is never garbled. Only {@code data:} fields matter here; several of them in one event are
+ * joined with newlines, as the format requires, and comments and other fields are skipped.
+ */
+public class SseParser {
+
+    public interface Listener {
+        /**
+         * @return false to stop reading.
+         */
+        boolean onEvent(String data);
+    }
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int READ_BUFFER_BYTES = 4096;
+
+    private final Listener listener;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+    private final StringBuilder data = new StringBuilder();
+    private boolean hasData = false;
+    private boolean lastWasCarriageReturn = false;
+
+    public SseParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Reads until the stream ends or the listener asks to stop.
+     */
+    public void readFrom(InputStream in) throws IOException {
+        byte[] buffer = BufferPool.get().acquireBytes(READ_BUFFER_BYTES);
+        try {
+            int read;
+            while ((read = in.read(buffer, 0, READ_BUFFER_BYTES)) != -1) {
+                if (!feed(buffer, read)) return;
+            }
+            // A final event without its blank line still counts.
+            if (line.size() > 0 && !endLine()) return;
+            dispatch();
+        } finally {
+            BufferPool.get().release(buffer);
+        }
+    }
+
+    // Returns false once the listener wants no more events.
+    private boolean feed(byte[] bytes, int length) {
+        for (int i = 0; i < length; i++) {
+            byte b = bytes[i];
+            // Lines end in \n, \r or \r\n.
+            if (b == '\n' && lastWasCarriageReturn) {
+                lastWasCarriageReturn = false;
+                continue;
+            }
+            lastWasCarriageReturn = b == '\r';
+            if (b == '\n' || b == '\r') {
+                if (!endLine()) return false;
+            } else {
+                line.write(b);
+            }
+        }
+        return true;
+    }
+
+    private boolean endLine() {
+        String text = new String(line.toByteArray(), UTF_8);
+        line.reset();
+        if (text.isEmpty()) return dispatch();
+        if (!text.startsWith("data:")) return true;
+
+        String value = text.substring(5);
+        if (value.startsWith(" ")) value = value.substring(1);
+        if (hasData) data.append('\n');
+        data.append(value);
+        hasData = true;
+        return true;
+    }
+
+    private boolean dispatch() {
+        if (!hasData) return true;
+        String event = data.toString();
+        data.setLength(0);
+        hasData = false;
+        return listener.onEvent(event);
+    }
+}
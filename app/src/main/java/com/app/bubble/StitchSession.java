@@ -0,0 +1,296 @@
+package com.app.bubble;
+
+import android.graphics.Bitmap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Stitches a scroll capture while the frames are still arriving.
+ *
+ * Call {@link #begin()}, then {@link #offer(Bitmap)} for every frame, then {@link #finish()}.
+ * Each offered frame is hashed row by row, and matched against the frame before it, on a small
+ * bounded pool, so neighbouring pairs are worked on in parallel and never on the thread that offers
+ * the frames. Frames are then composed in order from the known offsets: only the new strip of each
+ * is appended to the canvas and the frame before it is handed back to {@link BufferPool}. At most
+ * {@link #MAX_PENDING_FRAMES} frames wait for their offsets, so memory stays bounded, and the result
+ * is ready about one frame's hashing after the last frame is in.
+ *
+ * The session is thread-safe, so frames can be offered from the capture thread.
+ */
+public class StitchSession {
+
+    /**
+     * Told about every strip added to the canvas while frames arrive, e.g. to recognize it early.
+     * Called with the session lock held, so the canvas may be read during the call but not kept.
+     */
+    public interface StripListener {
+        void onStripAppended(StripCanvas canvas, int top, int rowCount);
+    }
+
+    // Frames whose perceptual hash differs by at most this many bits count as unchanged.
+    private static final int DUPLICATE_DISTANCE = 2;
+    // Frames offered but not composed yet; past this, offering waits for the oldest one.
+    private static final int MAX_PENDING_FRAMES = 4;
+    // Bounded pool for the per-frame hashing and pairwise overlap work.
+    private static final int STITCH_THREADS = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 4));
+
+    // Prefix of the spill files; each canvas gets its own uniquely named file.
+    private static final String SPILL_PREFIX = "capture";
+    private static final String SPILL_SUFFIX = ".tiles";
+
+    // A frame with its row hashes and its offset against the frame before it, both still being computed.
+    private static final class Frame {
+        final Bitmap bitmap;
+        final Future<int[]> rows;
+        // Null for the first frame, and until the static regions are known.
+        Future<Integer> overlap;
+
+        Frame(Bitmap bitmap, Future<int[]> rows) {
+            this.bitmap = bitmap;
+            this.rows = rows;
+        }
+    }
+
+    private final File spillDir;
+    private final ExecutorService workers = Executors.newFixedThreadPool(STITCH_THREADS);
+    private StripListener stripListener;
+
+    private StripCanvas canvas;
+    private ImageStitcher.StaticRegions regions;
+    private int frameCount;
+    private int droppedCount;
+    private long previousHash;
+
+    // Offered frames not on the canvas yet, oldest first.
+    private final ArrayDeque<Frame> pending = new ArrayDeque<>();
+    // The newest frame on the canvas. It is kept until the next one is composed (or until finish),
+    // because its footer only belongs in the output if it turns out to be the last frame.
+    private Frame composed;
+
+    /**
+     * @param spillDir App-private directory for full canvas tiles, or null to keep the canvas in
+     *                 memory. Each canvas gets its own file there, since a finished canvas may still
+     *                 be read while later captures start; the canvas deletes it when closed.
+     */
+    public StitchSession(File spillDir) {
+        this.spillDir = spillDir;
+        // Files of canvases that were never closed (the process died) are of no use any more.
+        File[] leftovers = (spillDir != null) ? spillDir.listFiles() : null;
+        if (leftovers != null) {
+            for (File file : leftovers) {
+                String name = file.getName();
+                if (name.startsWith(SPILL_PREFIX) && name.endsWith(SPILL_SUFFIX)) file.delete();
+            }
+        }
+    }
+
+    public synchronized void setStripListener(StripListener listener) {
+        this.stripListener = listener;
+    }
+
+    /**
+     * Starts a new capture, dropping anything left over from a previous one.
+     */
+    public synchronized void begin() {
+        cancel();
+        frameCount = 0;
+        droppedCount = 0;
+    }
+
+    /**
+     * Adds the next frame of the scroll. The session takes ownership of the bitmap.
+     */
+    public synchronized void offer(Bitmap frame) throws IOException {
+        if (frame == null) return;
+        append(frame, PerceptualHash.of(frame));
+    }
+
+    /**
+     * Adds a frame sampled during auto-scroll, unless it looks the same as the previous frame
+     * (the page did not move). Dropped frames go straight back to {@link BufferPool}.
+     * @return True if the frame was kept.
+     */
+    public synchronized boolean offerIfChanged(Bitmap frame) throws IOException {
+        if (frame == null) return false;
+        long hash = PerceptualHash.of(frame);
+        if (hasFrames() && PerceptualHash.distance(previousHash, hash) <= DUPLICATE_DISTANCE) {
+            droppedCount++;
+            BufferPool.get().release(frame);
+            return false;
+        }
+        append(frame, hash);
+        return true;
+    }
+
+    private void append(final Bitmap bitmap, long hash) throws IOException {
+        previousHash = hash;
+        frameCount++;
+        Frame frame = new Frame(bitmap, workers.submit(new Callable<int[]>() {
+            @Override
+            public int[] call() {
+                return ImageStitcher.rowHashes(bitmap);
+            }
+        }));
+        Frame before = pending.isEmpty() ? composed : pending.peekLast();
+        pending.add(frame);
+
+        if (regions == null) {
+            // The first few frames show which rows are sticky; until then they only get hashed.
+            if (pending.size() >= ImageStitcher.STATIC_DETECTION_FRAMES) {
+                List<int[]> firstFrames = new ArrayList<>();
+                for (Frame first : pending) firstFrames.add(await(first.rows));
+                startMatching(ImageStitcher.detectStaticRegions(firstFrames));
+            }
+        } else {
+            frame.overlap = findOverlap(before, frame);
+        }
+        compose(false);
+    }
+
+    // Fixes the static regions and starts matching every pair of frames offered so far.
+    private void startMatching(ImageStitcher.StaticRegions found) {
+        regions = found;
+        Frame before = null;
+        for (Frame frame : pending) {
+            if (before != null) frame.overlap = findOverlap(before, frame);
+            before = frame;
+        }
+    }
+
+    private Future<Integer> findOverlap(final Frame before, final Frame frame) {
+        final ImageStitcher.StaticRegions sessionRegions = regions;
+        // Queued after both frames' hashing, so on this FIFO pool it never waits on work behind it.
+        return workers.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                return ImageStitcher.findOverlap(before.rows.get(), frame.rows.get(), sessionRegions);
+            }
+        });
+    }
+
+    // Appends pending frames in order while their offsets are known. Waits for them only if too
+    // many frames are pending, or if everything has to be composed now.
+    private void compose(boolean all) throws IOException {
+        while (regions != null && !pending.isEmpty()) {
+            Frame next = pending.peekFirst();
+            boolean ready = (next.overlap != null) ? next.overlap.isDone() : next.rows.isDone();
+            if (!ready && !all && pending.size() <= MAX_PENDING_FRAMES) return;
+            pending.removeFirst();
+
+            int appendedFrom = (canvas == null) ? 0 : canvas.getHeight();
+            int height = next.bitmap.getHeight();
+            if (composed == null) {
+                canvas = new StripCanvas(next.bitmap.getWidth(), nextSpillFile());
+                canvas.appendBitmap(next.bitmap, 0, height - regions.footer);
+            } else {
+                // Append only the content strip that scrolled into view.
+                int overlap = await(next.overlap);
+                canvas.appendBitmap(next.bitmap, regions.header + overlap, height - regions.footer);
+                BufferPool.get().release(composed.bitmap);
+            }
+            composed = next;
+            if (stripListener != null && canvas.getHeight() > appendedFrom) {
+                stripListener.onStripAppended(canvas, appendedFrom, canvas.getHeight() - appendedFrom);
+            }
+        }
+    }
+
+    /**
+     * Completes the capture and returns the stitched canvas (the caller must close it),
+     * or null if no frame was offered. Waits for the offsets still being computed.
+     */
+    public synchronized StripCanvas finish() throws IOException {
+        if (!hasFrames()) return null;
+
+        if (composed == null && pending.size() == 1) {
+            // Only one frame: keep it whole.
+            Frame only = pending.removeFirst();
+            await(only.rows);
+            canvas = new StripCanvas(only.bitmap.getWidth(), nextSpillFile());
+            canvas.appendBitmap(only.bitmap, 0, only.bitmap.getHeight());
+            composed = only;
+        } else {
+            // Too few frames to tell sticky rows from content that did not scroll far.
+            if (regions == null) startMatching(ImageStitcher.StaticRegions.NONE);
+            compose(true);
+            Bitmap last = composed.bitmap;
+            canvas.appendBitmap(last, last.getHeight() - regions.footer, last.getHeight());
+        }
+
+        StripCanvas result = canvas;
+        BufferPool.get().release(composed.bitmap);
+        composed = null;
+        canvas = null;
+        regions = null;
+        return result;
+    }
+
+    /**
+     * Abandons the current capture and frees its buffers.
+     */
+    public synchronized void cancel() {
+        for (Frame frame : pending) {
+            // A frame can only go back to the pool once nothing reads it any more.
+            if (frame.overlap != null) frame.overlap.cancel(false);
+            frame.rows.cancel(false);
+            awaitQuietly(frame.rows);
+            BufferPool.get().release(frame.bitmap);
+        }
+        pending.clear();
+        if (composed != null) BufferPool.get().release(composed.bitmap);
+        if (canvas != null) canvas.close();
+        composed = null;
+        canvas = null;
+        regions = null;
+    }
+
+    /**
+     * Cancels the current capture and stops the worker threads. The session cannot be used afterwards.
+     */
+    public synchronized void shutdown() {
+        cancel();
+        workers.shutdown();
+    }
+
+    private boolean hasFrames() {
+        return composed != null || !pending.isEmpty();
+    }
+
+    private File nextSpillFile() throws IOException {
+        if (spillDir == null) return null;
+        return File.createTempFile(SPILL_PREFIX, SPILL_SUFFIX, spillDir);
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Stitching interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Stitching failed", e.getCause());
+        }
+    }
+
+    private static void awaitQuietly(Future<?> future) {
+        try {
+            future.get();
+        } catch (Exception e) {
+            // Cancelled or failed; either way it is no longer running.
+        }
+    }
+
+    public synchronized int getFrameCount() { return frameCount; }
+
+    public synchronized int getDroppedCount() { return droppedCount; }
+}
@@ -0,0 +1,205 @@
+package com.app.bubble;
+
+import android.graphics.Bitmap;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An append-only, fixed-width image of unlimited height used for long scroll captures.
+ *
+ * Rows are stored in fixed-size tiles of {@link #TILE_HEIGHT} rows. Only the tile currently being
+ * written and a few recently read tiles stay on the heap; full tiles are spilled to a private file,
+ * so a capture of many screens does not need one giant bitmap (or repeated re-allocation) to build.
+ */
+public class StripCanvas implements Closeable {
+
+    public static final int TILE_HEIGHT = 512;
+
+    // How many spilled tiles we keep around for random access (OCR strips and tiles).
+    private static final int MAX_CACHED_TILES = 3;
+
+    private final int width;
+    private final int tilePixels;
+    private int height = 0;
+
+    // The tile currently being filled.
+    private int[] writeTile;
+
+    // Spill storage. When there is no spill file, full tiles simply stay in 'memoryTiles'.
+    private final File spillFile;
+    private RandomAccessFile spillAccess;
+    private FileChannel spillChannel;
+    private ByteBuffer ioBuffer;
+    private final List<int[]> memoryTiles = new ArrayList<>();
+
+    private final LinkedHashMap<Integer, int[]> tileCache = new LinkedHashMap<Integer, int[]>(MAX_CACHED_TILES + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+            return size() > MAX_CACHED_TILES;
+        }
+    };
+
+    /**
+     * @param width Width in pixels of every row in the canvas.
+     * @param spillFile App-private file that receives full tiles, or null to keep everything in memory.
+     *                  It must not be shared with another canvas; {@link #close()} deletes it.
+     */
+    public StripCanvas(int width, File spillFile) throws IOException {
+        if (width <= 0) throw new IllegalArgumentException("width must be positive");
+        this.width = width;
+        this.tilePixels = width * TILE_HEIGHT;
+        this.spillFile = spillFile;
+        this.writeTile = BufferPool.get().acquireInts(tilePixels);
+
+        if (spillFile != null) {
+            spillAccess = new RandomAccessFile(spillFile, "rw");
+            spillAccess.setLength(0);
+            spillChannel = spillAccess.getChannel();
+            ioBuffer = ByteBuffer.allocateDirect(tilePixels * 4);
+        }
+    }
+
+    public int getWidth() { return width; }
+
+    public int getHeight() { return height; }
+
+    /**
+     * Appends rows [fromRow, toRow) of a bitmap to the bottom of the canvas.
+     * Bitmaps wider than the canvas are cropped, narrower ones are padded with transparent pixels.
+     */
+    public void appendBitmap(Bitmap source, int fromRow, int toRow) throws IOException {
+        int copyWidth = Math.min(width, source.getWidth());
+        int y = Math.max(0, fromRow);
+        int end = Math.min(toRow, source.getHeight());
+
+        while (y < end) {
+            int rowInTile = height % TILE_HEIGHT;
+            int rows = Math.min(end - y, TILE_HEIGHT - rowInTile);
+            int offset = rowInTile * width;
+
+            if (copyWidth < width) Arrays.fill(writeTile, offset, offset + rows * width, 0);
+            source.getPixels(writeTile, offset, width, 0, y, copyWidth, rows);
+
+            y += rows;
+            advance(rows);
+        }
+    }
+
+    /**
+     * Copies an arbitrary band of rows into a pooled bitmap. The band is filled tile by tile,
+     * so no pixel array larger than one tile is ever allocated. Hand the bitmap back to
+     * {@link BufferPool} once done with it.
+     */
+    public Bitmap copyRegion(int top, int rowCount) throws IOException {
+        if (top < 0 || rowCount <= 0 || top + rowCount > height) {
+            throw new IndexOutOfBoundsException("rows " + top + "+" + rowCount + " outside 0.." + height);
+        }
+        Bitmap result = BufferPool.get().acquireBitmap(width, rowCount, Bitmap.Config.ARGB_8888);
+        int y = top;
+        while (y < top + rowCount) {
+            int tileIndex = y / TILE_HEIGHT;
+            int rowInTile = y % TILE_HEIGHT;
+            int rows = Math.min(top + rowCount - y, TILE_HEIGHT - rowInTile);
+            result.setPixels(tile(tileIndex), rowInTile * width, width, 0, y - top, width, rows);
+            y += rows;
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        BufferPool pool = BufferPool.get();
+        for (int[] tile : tileCache.values()) pool.release(tile);
+        for (int[] tile : memoryTiles) pool.release(tile);
+        pool.release(writeTile);
+        tileCache.clear();
+        memoryTiles.clear();
+        writeTile = null;
+        try {
+            if (spillChannel != null) spillChannel.close();
+            if (spillAccess != null) spillAccess.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (spillFile != null) spillFile.delete();
+    }
+
+    // Moves the write position forward and spills the write tile once it is full.
+    private void advance(int rows) throws IOException {
+        int rowInTile = height % TILE_HEIGHT;
+        height += rows;
+        if (rowInTile + rows < TILE_HEIGHT) return;
+
+        int tileIndex = (height - 1) / TILE_HEIGHT;
+        if (spillChannel != null) {
+            writeToSpill(tileIndex, writeTile);
+            // The freshly spilled tile is the most likely one to be read next, keep it cached.
+            tileCache.put(tileIndex, writeTile);
+            writeTile = recycledTile();
+        } else {
+            memoryTiles.add(writeTile);
+            writeTile = BufferPool.get().acquireInts(tilePixels);
+        }
+    }
+
+    // Returns the pixels of a tile, from memory, the cache, or the spill file.
+    private int[] tile(int index) throws IOException {
+        int fullTiles = height / TILE_HEIGHT;
+        if (index == fullTiles) return writeTile;
+        if (spillChannel == null) return memoryTiles.get(index);
+
+        int[] cached = tileCache.get(index);
+        if (cached != null) return cached;
+
+        int[] pixels = recycledTile();
+        readFromSpill(index, pixels);
+        tileCache.put(index, pixels);
+        return pixels;
+    }
+
+    // Reuses the array of a tile about to leave the cache instead of allocating a new one.
+    private int[] recycledTile() {
+        if (tileCache.size() >= MAX_CACHED_TILES) {
+            Iterator<int[]> eldest = tileCache.values().iterator();
+            int[] reused = eldest.next();
+            eldest.remove();
+            return reused;
+        }
+        return BufferPool.get().acquireInts(tilePixels);
+    }
+
+    private void writeToSpill(int index, int[] pixels) throws IOException {
+        ioBuffer.clear();
+        IntBuffer ints = ioBuffer.asIntBuffer();
+        ints.put(pixels, 0, tilePixels);
+        ioBuffer.limit(tilePixels * 4);
+        long position = (long) index * tilePixels * 4;
+        while (ioBuffer.hasRemaining()) {
+            position += spillChannel.write(ioBuffer, position);
+        }
+    }
+
+    private void readFromSpill(int index, int[] pixels) throws IOException {
+        ioBuffer.clear();
+        long position = (long) index * tilePixels * 4;
+        while (ioBuffer.hasRemaining()) {
+            int read = spillChannel.read(ioBuffer, position);
+            if (read < 0) throw new IOException("Spill file truncated at tile " + index);
+            position += read;
+        }
+        ioBuffer.flip();
+        ioBuffer.asIntBuffer().get(pixels, 0, tilePixels);
+    }
+}
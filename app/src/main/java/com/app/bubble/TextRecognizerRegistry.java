@@ -0,0 +1,135 @@
+package com.app.bubble;
+
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+
+import com.google.android.gms.tasks.Task;
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.text.Text;
+import com.google.mlkit.vision.text.TextRecognition;
+import com.google.mlkit.vision.text.TextRecognizer;
+import com.google.mlkit.vision.text.devanagari.DevanagariTextRecognizerOptions;
+import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Long-lived ML Kit text recognizers, one per script.
+ *
+ * Creating a recognizer loads its model, so clients are kept for the life of the service instead of
+ * being created per capture. The Latin client is created and warmed up front; other scripts are
+ * loaded the first time a matching source language is used and closed again when memory is tight.
+ */
+public class TextRecognizerRegistry {
+
+    /** Scripts with a dedicated ML Kit model. */
+    public enum Script { LATIN, DEVANAGARI }
+
+    // A non-Latin client unused for this long is closed on the next trim.
+    private static final long IDLE_CLOSE_MS = 60000;
+    private static final int WARM_UP_SIZE = 32;
+
+    private final Map<Script, Entry> entries = new EnumMap<>(Script.class);
+
+    private static final class Entry {
+        final TextRecognizer recognizer;
+        long lastUsed;
+        int inFlight;
+
+        Entry(TextRecognizer recognizer) {
+            this.recognizer = recognizer;
+        }
+    }
+
+    /**
+     * Maps a source language code to the script model that reads it. Languages without their own
+     * ML Kit model (Bengali, Tamil, Telugu, Malayalam) fall back to Latin.
+     */
+    public static Script scriptFor(String languageCode) {
+        if ("hi".equals(languageCode) || "mr".equals(languageCode)) return Script.DEVANAGARI;
+        return Script.LATIN;
+    }
+
+    /**
+     * Loads the default (Latin) model and runs it once on a blank image, so the first real
+     * capture does not pay for model initialisation.
+     */
+    public void prewarm() {
+        final Bitmap blank = Bitmap.createBitmap(WARM_UP_SIZE, WARM_UP_SIZE, Bitmap.Config.ARGB_8888);
+        blank.eraseColor(0xFFFFFFFF);
+        process(Script.LATIN, InputImage.fromBitmap(blank, 0))
+                .addOnCompleteListener(t -> blank.recycle());
+    }
+
+    /**
+     * Recognizes text with the model for the given source language.
+     */
+    public Task<Text> process(String languageCode, InputImage image) {
+        return process(scriptFor(languageCode), image);
+    }
+
+    public Task<Text> process(Script script, InputImage image) {
+        final Entry entry;
+        synchronized (this) {
+            entry = obtain(script);
+            entry.inFlight++;
+            entry.lastUsed = SystemClock.elapsedRealtime();
+        }
+        Task<Text> task = entry.recognizer.process(image);
+        task.addOnCompleteListener(t -> {
+            synchronized (TextRecognizerRegistry.this) {
+                entry.inFlight--;
+                entry.lastUsed = SystemClock.elapsedRealtime();
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Closes idle non-Latin clients, or every idle one including Latin when {@code aggressive}.
+     * Clients with recognition in progress are always kept.
+     */
+    public synchronized void trim(boolean aggressive) {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<Map.Entry<Script, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Script, Entry> mapping = it.next();
+            Entry entry = mapping.getValue();
+            if (entry.inFlight > 0) continue;
+            boolean idle = now - entry.lastUsed >= IDLE_CLOSE_MS;
+            if (aggressive || (mapping.getKey() != Script.LATIN && idle)) {
+                entry.recognizer.close();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Closes every client. The registry can still be used afterwards; models reload on demand.
+     */
+    public synchronized void close() {
+        for (Entry entry : entries.values()) entry.recognizer.close();
+        entries.clear();
+    }
+
+    private Entry obtain(Script script) {
+        Entry entry = entries.get(script);
+        if (entry == null) {
+            entry = new Entry(create(script));
+            entries.put(script, entry);
+        }
+        return entry;
+    }
+
+    private static TextRecognizer create(Script script) {
+        switch (script) {
+            case DEVANAGARI:
+                return TextRecognition.getClient(new DevanagariTextRecognizerOptions.Builder().build());
+            case LATIN:
+            default:
+                return TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.app.bubble;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the parts of a capture that can contain text, so blank margins are not sent to OCR.
+ *
+ * Text is full of sharp horizontal brightness changes, while backgrounds, padding and divider
+ * lines are not. Each sampled row counts those edges (a luminance projection of the gradient);
+ * rows with enough of them form text bands, bands close together are merged, and the columns
+ * with edges inside the bands give the left and right limits. Bands separated by a tall blank gap
+ * become separate regions. Everything is done on sampled pixels in plain Java and costs a few
+ * milliseconds, far less than ML Kit spends on the pixels it saves.
+ */
+public final class TextRegionDetector {
+
+    // Only every n-th row and column is examined.
+    private static final int ROW_STEP = 2;
+    private static final int COLUMN_STEP = 2;
+    // Brightness difference between sampled neighbours that counts as an edge.
+    private static final int EDGE_THRESHOLD = 40;
+    // Edges a sampled row needs to count as part of a text band.
+    private static final int MIN_ROW_EDGES = 3;
+    // Bands closer than this are the same paragraph (line spacing).
+    private static final int MERGE_GAP = 32;
+    // Bands further apart than this are recognized as separate regions.
+    private static final int SPLIT_GAP = 128;
+    // Bands thinner than this are rules or specks rather than text.
+    private static final int MIN_BAND_ROWS = 6;
+    // Runs of text rows thinner than this are not counted as lines when estimating the text height.
+    private static final int MIN_LINE_ROWS = 4;
+    // Lines needed before the text height estimate is trusted.
+    private static final int MIN_ESTIMATE_LINES = 2;
+    // Padding kept around every region so glyph edges are not clipped.
+    private static final int MARGIN = 12;
+    private static final int MAX_REGIONS = 4;
+    // Not worth cropping if the regions still cover this much of the image.
+    private static final float MIN_SAVING = 0.15f;
+
+    // This class is not meant to be instantiated, so we make the constructor private.
+    private TextRegionDetector() {}
+
+    /**
+     * @return The text regions in bitmap coordinates, top to bottom. A single full-size rectangle
+     *         if cropping would not save enough, or if nothing was found (low-contrast text is
+     *         still worth a full pass).
+     */
+    public static List<Rect> find(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        List<Rect> regions = new ArrayList<>();
+        Rect full = new Rect(0, 0, width, height);
+        if (width <= COLUMN_STEP || height <= ROW_STEP) {
+            regions.add(full);
+            return regions;
+        }
+
+        int sampledRows = (height + ROW_STEP - 1) / ROW_STEP;
+        // Per sampled row, the first and last edge column.
+        int[] rowLeft = new int[sampledRows];
+        int[] rowRight = new int[sampledRows];
+        int[] rowEdges = edgeProfile(bitmap, rowLeft, rowRight);
+
+        // Vertical profile -> bands of text rows, merged across normal line spacing.
+        List<int[]> bands = new ArrayList<>(); // {firstRow, lastRow, left, right}
+        int[] current = null;
+        for (int r = 0; r < sampledRows; r++) {
+            if (rowEdges[r] < MIN_ROW_EDGES) continue;
+            int y = r * ROW_STEP;
+            if (current != null && y - current[1] <= MERGE_GAP) {
+                current[1] = y;
+                current[2] = Math.min(current[2], rowLeft[r]);
+                current[3] = Math.max(current[3], rowRight[r]);
+            } else {
+                current = new int[] {y, y, rowLeft[r], rowRight[r]};
+                bands.add(current);
+            }
+        }
+
+        // Bands -> regions, split only at tall gaps.
+        Rect region = null;
+        int previousBottom = 0;
+        for (int[] band : bands) {
+            if (band[1] - band[0] + ROW_STEP < MIN_BAND_ROWS) continue;
+            Rect bandRect = new Rect(band[2], band[0], band[3] + COLUMN_STEP, band[1] + ROW_STEP);
+            if (region != null && bandRect.top - previousBottom < SPLIT_GAP) {
+                region.union(bandRect);
+            } else {
+                region = bandRect;
+                regions.add(region);
+            }
+            previousBottom = bandRect.bottom;
+        }
+        if (regions.isEmpty()) {
+            regions.add(full);
+            return regions;
+        }
+
+        if (regions.size() > MAX_REGIONS) {
+            Rect union = new Rect(regions.get(0));
+            for (Rect other : regions) union.union(other);
+            regions.clear();
+            regions.add(union);
+        }
+
+        long covered = 0;
+        for (Rect r : regions) {
+            r.set(Math.max(0, r.left - MARGIN), Math.max(0, r.top - MARGIN),
+                    Math.min(width, r.right + MARGIN), Math.min(height, r.bottom + MARGIN));
+            covered += (long) r.width() * r.height();
+        }
+        if (covered > (long) width * height * (1f - MIN_SAVING)) {
+            regions.clear();
+            regions.add(full);
+        }
+        return regions;
+    }
+
+    /**
+     * Typical height of the text lines in a bitmap, in bitmap rows, or 0 if too few lines were found.
+     * Reads the same edge profile as {@link #find}, without merging lines into paragraphs, so it
+     * costs about as little and can run on every capture before OCR.
+     */
+    public static float estimateLineHeight(Bitmap bitmap) {
+        if (bitmap.getWidth() <= COLUMN_STEP || bitmap.getHeight() <= ROW_STEP) return 0f;
+        int[] rowEdges = edgeProfile(bitmap, null, null);
+
+        List<Integer> lineHeights = new ArrayList<>();
+        int runStart = -1;
+        for (int r = 0; r <= rowEdges.length; r++) {
+            boolean text = r < rowEdges.length && rowEdges[r] >= MIN_ROW_EDGES;
+            if (text && runStart < 0) runStart = r;
+            if (!text && runStart >= 0) {
+                int rows = (r - runStart) * ROW_STEP;
+                if (rows >= MIN_LINE_ROWS) lineHeights.add(rows);
+                runStart = -1;
+            }
+        }
+        if (lineHeights.size() < MIN_ESTIMATE_LINES) return 0f;
+        Collections.sort(lineHeights);
+        return lineHeights.get(lineHeights.size() / 2);
+    }
+
+    // Edges per sampled row. The first and last edge column of every row go to 'rowLeft' and
+    // 'rowRight' when they are not null.
+    private static int[] edgeProfile(Bitmap bitmap, int[] rowLeft, int[] rowRight) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int sampledRows = (height + ROW_STEP - 1) / ROW_STEP;
+        int sampledColumns = (width - 1) / COLUMN_STEP;
+        int[] rowEdges = new int[sampledRows];
+        int[] row = BufferPool.get().acquireInts(width);
+
+        for (int r = 0; r < sampledRows; r++) {
+            bitmap.getPixels(row, 0, width, 0, r * ROW_STEP, width, 1);
+            int edges = 0, left = width, right = -1;
+            int previous = PerceptualHash.luminance(row[0]);
+            for (int c = 1; c <= sampledColumns; c++) {
+                int x = c * COLUMN_STEP;
+                int current = PerceptualHash.luminance(row[x]);
+                if (Math.abs(current - previous) >= EDGE_THRESHOLD) {
+                    edges++;
+                    if (x < left) left = x - COLUMN_STEP;
+                    right = x;
+                }
+                previous = current;
+            }
+            rowEdges[r] = edges;
+            if (rowLeft != null) rowLeft[r] = left;
+            if (rowRight != null) rowRight[r] = right;
+        }
+        BufferPool.get().release(row);
+        return rowEdges;
+    }
+}
@@ -0,0 +1,121 @@
+package com.app.bubble;
+
+import android.graphics.Bitmap;
+
+import com.google.android.gms.tasks.Tasks;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Recognizes a stitched capture of any height in overlapping horizontal tiles.
+ *
+ * One very tall InputImage is slow and ML Kit downsamples it, which loses small text. Instead the
+ * canvas is read in tiles of {@link #TILE_ROWS} rows at full resolution, several tiles are
+ * recognized at once, and the lines are merged back in document order. Neighbouring tiles share
+ * {@link #OVERLAP_ROWS} rows so no line is only ever seen cut in half; lines that show up in both
+ * tiles are dropped by comparing their boxes.
+ */
+public class TiledOcr {
+
+    static final int TILE_ROWS = 1536;
+    // More than the tallest line we expect, so every line lies fully inside at least one tile.
+    static final int OVERLAP_ROWS = 192;
+    // Tiles recognized (and held in memory) at the same time.
+    private static final int MAX_PARALLEL_TILES = 3;
+
+    private final OcrEngine ocrEngine;
+    private final ExecutorService tilePool = Executors.newFixedThreadPool(MAX_PARALLEL_TILES);
+
+    public TiledOcr(OcrEngine ocrEngine) {
+        this.ocrEngine = ocrEngine;
+    }
+
+    /**
+     * Recognizes the whole canvas. Blocks until done, so call it off the main thread.
+     * The canvas stays owned by the caller.
+     */
+    public List<OcrLine> recognize(StripCanvas canvas, final OcrEngine.Options options) throws IOException {
+        int height = canvas.getHeight();
+        final Semaphore inMemory = new Semaphore(MAX_PARALLEL_TILES);
+        List<Integer> tops = new ArrayList<>();
+        List<Future<List<OcrLine>>> results = new ArrayList<>();
+
+        try {
+            int top = 0;
+            while (true) {
+                int rows = Math.min(TILE_ROWS, height - top);
+                // Reading the canvas is not thread-safe, so tiles are cut here and only OCR runs in parallel.
+                inMemory.acquire();
+                final Bitmap tile;
+                try {
+                    tile = canvas.copyRegion(top, rows);
+                } catch (IOException | RuntimeException e) {
+                    inMemory.release();
+                    throw e;
+                }
+                tops.add(top);
+                results.add(tilePool.submit(new Callable<List<OcrLine>>() {
+                    @Override
+                    public List<OcrLine> call() throws Exception {
+                        try {
+                            return Tasks.await(ocrEngine.recognize(tile, options));
+                        } finally {
+                            BufferPool.get().release(tile);
+                            inMemory.release();
+                        }
+                    }
+                }));
+                if (top + rows >= height) break;
+                top += rows - OVERLAP_ROWS;
+            }
+
+            List<OcrLine> merged = new ArrayList<>();
+            List<OcrLine> previousTile = new ArrayList<>();
+            int nextBlock = 0;
+            for (int i = 0; i < results.size(); i++) {
+                List<OcrLine> tileLines = results.get(i).get();
+                int tileTop = tops.get(i);
+                int tileBottom = Math.min(tileTop + TILE_ROWS, height);
+                List<OcrLine> kept = new ArrayList<>();
+                for (OcrLine line : OcrLine.shift(tileLines, tileTop, nextBlock)) {
+                    nextBlock = Math.max(nextBlock, line.block + 1);
+                    // A line cut by an inner tile edge is whole in the neighbouring tile.
+                    if (line.isCutOff(tileTop > 0 ? tileTop : -1, tileBottom < height ? tileBottom : -1)) continue;
+                    // Overlaps only exist between neighbouring tiles, so only the previous tile is searched.
+                    if (line.duplicatesAny(previousTile)) continue;
+                    kept.add(line);
+                }
+                merged.addAll(kept);
+                previousTile = kept;
+            }
+            return merged;
+        } catch (InterruptedException e) {
+            cancelAll(results);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Tiled OCR interrupted");
+        } catch (ExecutionException e) {
+            cancelAll(results);
+            throw new IOException("Tile recognition failed", e.getCause());
+        }
+    }
+
+    /**
+     * Stops the tile workers. Recognitions in progress are abandoned.
+     */
+    public void shutdown() {
+        tilePool.shutdownNow();
+    }
+
+    private static void cancelAll(List<Future<List<OcrLine>>> results) {
+        for (Future<List<OcrLine>> result : results) result.cancel(true);
+    }
+}
@@ -1,10 +1,7 @@
 package com.app.bubble;
 
 import org.json.JSONArray;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.IOException;
 import java.net.URLEncoder;
 
 public final class TranslateApi {
@@ -12,6 +9,10 @@ public final class TranslateApi {
     // This class is not meant to be instantiated, so we make the constructor private.
     private TranslateApi() {}
 
+    private static final String ENDPOINT = "https://translate.googleapis.com/translate_a/single";
+    // Longer texts go in a POST body; URLs this long start being rejected.
+    private static final int MAX_GET_QUERY_LENGTH = 2000;
+
     /**
      * Translates text from a source language to a target language.
      * @param fromLang The source language code (e.g., "en" for English).
@@ -20,30 +21,37 @@ public final class TranslateApi {
      * @return The translated text as a String, or null if an error occurs.
      */
     public static String translate(String fromLang, String toLang, String text) {
+        return translate(fromLang, toLang, text, null);
+    }
+
+    /**
+     * Like {@link #translate(String, String, String)}, but aborted when {@code cancellation} is
+     * cancelled (null for never).
+     */
+    public static String translate(String fromLang, String toLang, String text, CancellationToken cancellation) {
         try {
             // Construct the URL for the Google Translate API.
-            String urlStr = "https://translate.googleapis.com/translate_a/single?client=gtx&sl=" +
-				fromLang + "&tl=" + toLang + "&dt=t&q=" + URLEncoder.encode(text, "UTF-8");
+            String params = "client=gtx&sl=" + fromLang + "&tl=" + toLang + "&dt=t";
+            String query = "q=" + URLEncoder.encode(text, "UTF-8");
+            boolean post = query.length() > MAX_GET_QUERY_LENGTH;
 
-            URL url = new URL(urlStr);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            HttpTransport.Request request;
+            if (post) {
+                request = new HttpTransport.Request("POST", ENDPOINT + "?" + params)
+                        .body("application/x-www-form-urlencoded;charset=UTF-8", query.getBytes("UTF-8"));
+            } else {
+                request = new HttpTransport.Request("GET", ENDPOINT + "?" + params + "&" + query);
+            }
             // Set a user-agent to avoid being blocked.
-            connection.setRequestProperty("User-Agent", "Mozilla/5.0");
+            request.header("User-Agent", "Mozilla/5.0").cancellation(cancellation);
 
-            // Read the response from the server.
-            BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            reader.close();
-            connection.disconnect();
+            HttpTransport.Response response = Http.get().execute(request);
+            if (!response.isSuccessful()) throw new IOException("HTTP " + response.code);
 
             // The API returns a complex JSON array. We need to parse it to extract the full translation.
             // [[["Translated sentence 1","Original sentence 1"],["Translated sentence 2","Original sentence 2"]],...]
             // The previous bug was only reading the first element. This new code iterates through all parts.
-            JSONArray jsonArray = new JSONArray(response.toString());
+            JSONArray jsonArray = new JSONArray(response.string());
             JSONArray translations = jsonArray.getJSONArray(0);
             StringBuilder translatedText = new StringBuilder();
 
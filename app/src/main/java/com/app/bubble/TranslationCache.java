@@ -0,0 +1,275 @@
+package com.app.bubble;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers translations so re-reading the same screen does not go back to the network.
+ *
+ * Entries are keyed by language pair and a hash of the whitespace-normalized source text. Recent
+ * entries live in a memory LRU bounded by characters; every entry is also appended to a log file
+ * in app storage, so the cache survives service restarts. An index of the log (key to file offset)
+ * is rebuilt when the file is opened. Entries older than {@link #TTL_MS} are ignored, and the log
+ * is compacted (live entries copied to a fresh file) once it holds too much dead data.
+ *
+ * All methods do file I/O; call them off the main thread.
+ */
+public class TranslationCache {
+
+    private static final long TTL_MS = 30L * 24 * 60 * 60 * 1000;
+    private static final long MAX_MEMORY_CHARS = 256 * 1024;
+    private static final int MAX_DISK_ENTRIES = 2000;
+    // Compaction keeps this many entries, so the next one is a few hundred puts away.
+    private static final int COMPACT_TO_ENTRIES = MAX_DISK_ENTRIES * 3 / 4;
+    // Compact once the log is this much larger than its live entries (and at least this big).
+    private static final int COMPACT_RATIO = 2;
+    private static final long MIN_COMPACT_BYTES = 256 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final class IndexEntry {
+        final long offset;
+        final long timestamp;
+        final int length; // Bytes of the whole record.
+
+        IndexEntry(long offset, long timestamp, int length) {
+            this.offset = offset;
+            this.timestamp = timestamp;
+            this.length = length;
+        }
+    }
+
+    private final File logFile;
+    private final LinkedHashMap<String, String> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryChars = 0;
+    private final Map<String, IndexEntry> index = new HashMap<>();
+    private long liveBytes = 0;
+    private RandomAccessFile log;
+    private long hits = 0;
+    private long diskHits = 0;
+    private long misses = 0;
+
+    /**
+     * @param logFile File in app storage holding the persistent tier. Opened on first use.
+     */
+    public TranslationCache(File logFile) {
+        this.logFile = logFile;
+    }
+
+    public synchronized String get(String sourceLang, String targetLang, String text) {
+        String key = key(sourceLang, targetLang, text);
+        String cached = memory.get(key);
+        if (cached != null) {
+            hits++;
+            return cached;
+        }
+
+        IndexEntry entry = openLog() ? index.get(key) : null;
+        if (entry != null && !isExpired(entry)) {
+            try {
+                String value = readValue(entry);
+                remember(key, value);
+                diskHits++;
+                return value;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    public synchronized void put(String sourceLang, String targetLang, String text, String translation) {
+        if (translation == null) return;
+        String key = key(sourceLang, targetLang, text);
+        remember(key, translation);
+        if (!openLog()) return;
+
+        try {
+            long now = System.currentTimeMillis();
+            long offset = log.length();
+            log.seek(offset);
+            byte[] value = translation.getBytes(UTF_8);
+            log.writeLong(now);
+            log.writeUTF(key);
+            log.writeInt(value.length);
+            log.write(value);
+            int length = (int) (log.getFilePointer() - offset);
+
+            IndexEntry previous = index.put(key, new IndexEntry(offset, now, length));
+            if (previous != null) liveBytes -= previous.length;
+            liveBytes += length;
+            maybeCompact();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Drops the memory tier (e.g. on memory pressure); the disk tier stays.
+     */
+    public synchronized void trimMemory() {
+        memory.clear();
+        memoryChars = 0;
+    }
+
+    public synchronized void close() {
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            log = null;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TranslationCache hits=" + hits + " diskHits=" + diskHits + " misses=" + misses
+                + " memoryEntries=" + memory.size() + " diskEntries=" + index.size();
+    }
+
+    // Same text modulo spacing and line breaks gives the same key.
+    static String key(String sourceLang, String targetLang, String text) {
+        long hash = 0xcbf29ce484222325L;
+        boolean pendingSpace = false;
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = length > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                hash = (hash ^ ' ') * 0x100000001b3L;
+                pendingSpace = false;
+            }
+            hash = (hash ^ c) * 0x100000001b3L;
+            length++;
+        }
+        return sourceLang + "|" + targetLang + "|" + Long.toHexString(hash) + "|" + length;
+    }
+
+    private void remember(String key, String value) {
+        String previous = memory.put(key, value);
+        if (previous != null) memoryChars -= previous.length();
+        memoryChars += value.length();
+        Iterator<String> it = memory.values().iterator();
+        while (memoryChars > MAX_MEMORY_CHARS && it.hasNext()) {
+            memoryChars -= it.next().length();
+            it.remove();
+        }
+    }
+
+    private boolean isExpired(IndexEntry entry) {
+        return System.currentTimeMillis() - entry.timestamp > TTL_MS;
+    }
+
+    // Opens the log and rebuilds the index. A torn record at the end (crash mid-write) is cut off.
+    private boolean openLog() {
+        if (log != null) return true;
+        try {
+            log = new RandomAccessFile(logFile, "rw");
+            index.clear();
+            liveBytes = 0;
+            long offset = 0;
+            long fileLength = log.length();
+            try {
+                while (offset < fileLength) {
+                    log.seek(offset);
+                    long timestamp = log.readLong();
+                    String key = log.readUTF();
+                    int valueLength = log.readInt();
+                    long end = log.getFilePointer() + valueLength;
+                    if (valueLength < 0 || end > fileLength) throw new EOFException();
+                    int length = (int) (end - offset);
+                    IndexEntry previous = index.put(key, new IndexEntry(offset, timestamp, length));
+                    if (previous != null) liveBytes -= previous.length;
+                    liveBytes += length;
+                    offset = end;
+                }
+            } catch (EOFException e) {
+                log.setLength(offset);
+            }
+            maybeCompact();
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            close();
+            return false;
+        }
+    }
+
+    private String readValue(IndexEntry entry) throws IOException {
+        log.seek(entry.offset + 8);
+        log.readUTF();
+        byte[] value = new byte[log.readInt()];
+        log.readFully(value);
+        return new String(value, UTF_8);
+    }
+
+    private void maybeCompact() throws IOException {
+        long fileLength = log.length();
+        boolean tooMuchDeadData = fileLength > MIN_COMPACT_BYTES && fileLength > liveBytes * COMPACT_RATIO;
+        if (!tooMuchDeadData && index.size() <= MAX_DISK_ENTRIES) return;
+        compact();
+    }
+
+    // Copies the newest live, unexpired entries (down to the low watermark) to a new file and swaps it in.
+    private void compact() throws IOException {
+        List<Map.Entry<String, IndexEntry>> live = new ArrayList<>();
+        for (Map.Entry<String, IndexEntry> mapping : index.entrySet()) {
+            if (!isExpired(mapping.getValue())) live.add(mapping);
+        }
+        Collections.sort(live, new Comparator<Map.Entry<String, IndexEntry>>() {
+            @Override
+            public int compare(Map.Entry<String, IndexEntry> a, Map.Entry<String, IndexEntry> b) {
+                return Long.compare(a.getValue().timestamp, b.getValue().timestamp);
+            }
+        });
+        if (live.size() > COMPACT_TO_ENTRIES) live = live.subList(live.size() - COMPACT_TO_ENTRIES, live.size());
+
+        File compacted = new File(logFile.getPath() + ".tmp");
+        Map<String, IndexEntry> newIndex = new HashMap<>();
+        long newLive = 0;
+        RandomAccessFile out = new RandomAccessFile(compacted, "rw");
+        try {
+            out.setLength(0);
+            byte[] record = new byte[0];
+            for (Map.Entry<String, IndexEntry> mapping : live) {
+                IndexEntry entry = mapping.getValue();
+                if (record.length < entry.length) record = new byte[entry.length];
+                log.seek(entry.offset);
+                log.readFully(record, 0, entry.length);
+                long offset = out.getFilePointer();
+                out.write(record, 0, entry.length);
+                newIndex.put(mapping.getKey(), new IndexEntry(offset, entry.timestamp, entry.length));
+                newLive += entry.length;
+            }
+        } finally {
+            out.close();
+        }
+
+        log.close();
+        log = null;
+        if (!compacted.renameTo(logFile)) {
+            compacted.delete();
+            throw new IOException("Could not replace " + logFile);
+        }
+        log = new RandomAccessFile(logFile, "rw");
+        index.clear();
+        index.putAll(newIndex);
+        liveBytes = newLive;
+    }
+}
@@ -0,0 +1,19 @@
+package com.app.bubble;
+
+/**
+ * A backend that translates text. Implementations are blocking and thread-safe; they are called
+ * off the main thread, possibly several at once.
+ */
+public interface TranslationProvider {
+
+    /**
+     * @param fromLang The source language code (e.g., "en").
+     * @param toLang The target language code (e.g., "ml").
+     * @param cancellation Aborts the translation when cancelled, or null.
+     * @return The translation, or null if it failed or was cancelled. Newlines in the input are kept.
+     */
+    String translate(String fromLang, String toLang, String text, CancellationToken cancellation);
+
+    /** Short name for logs. */
+    String name();
+}
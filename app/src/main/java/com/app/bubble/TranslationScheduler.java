@@ -0,0 +1,109 @@
+package com.app.bubble;
+
+import android.os.Handler;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs translations so that only the newest request reaches the screen.
+ *
+ * Every request gets a generation number. A new request supersedes the previous one: if it has not
+ * started yet it never will, if it is running its requests are disconnected and its thread is
+ * interrupted, and whatever it still produces is dropped. Requests marked as
+ * debounced (spinner changes) wait {@link #DEBOUNCE_MS} first, so flicking through languages sends
+ * one request for the language the user stopped at.
+ *
+ * Call everything on the main thread; the listener is called there too.
+ */
+public class TranslationScheduler {
+
+    public interface Listener {
+        void onTranslated(String translation);
+
+        void onFailed();
+    }
+
+    static final long DEBOUNCE_MS = 300;
+
+    private final Handler mainHandler;
+    private final ExecutorService executor;
+    private final SegmentTranslator translator;
+    private final Listener listener;
+
+    private int generation = 0;
+    private Runnable pendingStart;
+    private Future<?> running;
+    private CancellationToken runningToken;
+
+    /**
+     * @param executor Thread for translations only: a translation queued behind other work (OCR,
+     *                 a refine stream) would show up late however quickly it was superseded.
+     */
+    public TranslationScheduler(Handler mainHandler, ExecutorService executor,
+                                SegmentTranslator translator, Listener listener) {
+        this.mainHandler = mainHandler;
+        this.executor = executor;
+        this.translator = translator;
+        this.listener = listener;
+    }
+
+    /**
+     * Translates {@code text}, replacing any earlier request.
+     * @param debounce Wait briefly in case another request follows straight away.
+     */
+    public void request(final String sourceLang, final String targetLang, final String text, boolean debounce) {
+        cancel();
+        final int gen = generation;
+        final CancellationToken token = new CancellationToken();
+        pendingStart = () -> {
+            pendingStart = null;
+            runningToken = token;
+            running = executor.submit(() -> {
+                String translated = null;
+                try {
+                    translated = translator.translate(sourceLang, targetLang, text, token);
+                } catch (RuntimeException e) {
+                    // Reported as a failure rather than lost with the future, so the popup never waits forever.
+                    e.printStackTrace();
+                }
+                final String result = translated;
+                mainHandler.post(() -> deliver(gen, result));
+            });
+        };
+        if (debounce) {
+            mainHandler.postDelayed(pendingStart, DEBOUNCE_MS);
+        } else {
+            pendingStart.run();
+        }
+    }
+
+    /**
+     * Drops the current request, if any; nothing more is delivered for it.
+     */
+    public void cancel() {
+        generation++;
+        if (pendingStart != null) {
+            mainHandler.removeCallbacks(pendingStart);
+            pendingStart = null;
+        }
+        if (running != null) {
+            // The interrupt stops the waiting; the token also disconnects requests blocked in a read.
+            runningToken.cancel();
+            running.cancel(true);
+            running = null;
+            runningToken = null;
+        }
+    }
+
+    private void deliver(int gen, String result) {
+        if (gen != generation) return; // Superseded while it was running.
+        running = null;
+        runningToken = null;
+        if (result != null) {
+            listener.onTranslated(result);
+        } else {
+            listener.onFailed();
+        }
+    }
+}
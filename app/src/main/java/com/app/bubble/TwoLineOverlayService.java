@@ -108,6 +108,14 @@ public class TwoLineOverlayService extends Service {
 
         // 7. Setup Touch Listener for Dragging Lines
         setupTouchListener();
+
+        // 8. Keep the screen mirror warm while the overlay is up, so ADD PAGE is instant.
+        warmUpCapture();
+    }
+
+    private void warmUpCapture() {
+        FloatingTranslatorService service = FloatingTranslatorService.getInstance();
+        if (service != null) service.warmUpCapture();
     }
 
     /**
@@ -165,6 +173,9 @@ public class TwoLineOverlayService extends Service {
                         float distTop = Math.abs(rawY - topLoc[1]);
                         float distBot = Math.abs(rawY - botLoc[1]);
 
+                        // The user is adjusting the lines, so a capture is coming.
+                        warmUpCapture();
+
                         // Determine which line is closer
                         if (distTop < threshold && distTop < distBot) {
                             // Grab Top Line
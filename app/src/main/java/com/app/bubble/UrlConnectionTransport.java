@@ -0,0 +1,178 @@
+package com.app.bubble;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link HttpTransport} on top of {@link HttpURLConnection}, tuned for many small requests to the
+ * same two hosts.
+ *
+ * Connections are never disconnected: once a response body has been read to the end and closed,
+ * the platform returns the socket to its keep-alive pool (sized in {@link Http}), so the next
+ * request to the same host skips DNS, TCP and the TLS handshake. Responses are requested
+ * gzip-compressed and read through one pooled byte buffer. A request with a {@link CancellationToken} is disconnected when the token
+ * is cancelled, since a blocked read does not react to thread interrupts.
+ */
+public final class UrlConnectionTransport implements HttpTransport {
+
+    private static final String TAG = "Http";
+    private static final int CONNECT_TIMEOUT_MS = 10000;
+    private static final int READ_TIMEOUT_MS = 20000;
+    private static final int READ_BUFFER_BYTES = 8192;
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        HttpURLConnection connection = open(request);
+        CancellationToken.Listener abort = watch(connection, request);
+        try {
+            long start = SystemClock.elapsedRealtime();
+            connection.connect();
+            long connected = SystemClock.elapsedRealtime();
+            send(connection, request);
+            int code = connection.getResponseCode();
+            long firstByte = SystemClock.elapsedRealtime();
+
+            InputStream in = body(connection, code);
+            byte[] body;
+            // Reading to the end and closing is what lets the connection be reused.
+            try {
+                body = readFully(in);
+            } finally {
+                in.close();
+            }
+            long done = SystemClock.elapsedRealtime();
+
+            Response response = new Response(code, body, connected - start, firstByte - connected, done - firstByte);
+            if (BuildConfig.DEBUG) {
+                Log.d(TAG, request.method + " " + connection.getURL().getHost() + " " + code
+                        + " connect=" + response.connectMs + "ms ttfb=" + response.firstByteMs
+                        + "ms body=" + response.bodyMs + "ms " + body.length + "B");
+            }
+            return response;
+        } catch (IOException e) {
+            throw cancelledOr(request, e);
+        } finally {
+            unwatch(request, abort);
+        }
+    }
+
+    @Override
+    public StreamedResponse stream(final Request request) throws IOException {
+        HttpURLConnection connection = open(request);
+        final CancellationToken.Listener abort = watch(connection, request);
+        try {
+            long start = SystemClock.elapsedRealtime();
+            connection.connect();
+            long connected = SystemClock.elapsedRealtime();
+            send(connection, request);
+            int code = connection.getResponseCode();
+            long firstByte = SystemClock.elapsedRealtime();
+
+            if (BuildConfig.DEBUG) {
+                Log.d(TAG, request.method + " " + connection.getURL().getHost() + " " + code + " (streamed)"
+                        + " connect=" + (connected - start) + "ms ttfb=" + (firstByte - connected) + "ms");
+            }
+            // The request can be cancelled until the caller is done with the body.
+            InputStream body = new FilterInputStream(body(connection, code)) {
+                @Override
+                public void close() throws IOException {
+                    unwatch(request, abort);
+                    super.close();
+                }
+            };
+            return new StreamedResponse(code, body);
+        } catch (IOException e) {
+            unwatch(request, abort);
+            throw cancelledOr(request, e);
+        }
+    }
+
+    private static HttpURLConnection open(Request request) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(request.url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        connection.setRequestMethod(request.method);
+        // Set explicitly, so the body has to be (and is) decompressed below.
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        for (Map.Entry<String, String> header : request.headers.entrySet()) {
+            connection.setRequestProperty(header.getKey(), header.getValue());
+        }
+        if (request.body != null) {
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(request.body.length);
+        }
+        return connection;
+    }
+
+    // Sends the body, if any, on a connected connection.
+    private static void send(HttpURLConnection connection, Request request) throws IOException {
+        if (request.body != null) {
+            OutputStream out = connection.getOutputStream();
+            out.write(request.body);
+            out.close();
+        }
+    }
+
+    // Disconnecting is the only way to unblock a connect or read in progress. The socket is not
+    // reused afterwards, which is fine for a request nobody wants any more.
+    private static CancellationToken.Listener watch(final HttpURLConnection connection, Request request)
+            throws IOException {
+        if (request.cancellation == null) return null;
+        CancellationToken.Listener abort = connection::disconnect;
+        request.cancellation.register(abort);
+        if (request.cancellation.isCancelled()) throw new InterruptedIOException("Request cancelled");
+        return abort;
+    }
+
+    private static void unwatch(Request request, CancellationToken.Listener abort) {
+        if (abort != null) request.cancellation.unregister(abort);
+    }
+
+    // A failure caused by cancelling is reported as such rather than as a network error.
+    private static IOException cancelledOr(Request request, IOException e) {
+        if (request.cancellation != null && request.cancellation.isCancelled()) {
+            return new InterruptedIOException("Request cancelled");
+        }
+        return e;
+    }
+
+    private static InputStream body(HttpURLConnection connection, int code) throws IOException {
+        InputStream in = (code >= 400) ? connection.getErrorStream() : connection.getInputStream();
+        if (in == null) return new ByteArrayInputStream(new byte[0]);
+        // GZIPInputStream reads the gzip header straight away, so an empty body is left unwrapped.
+        if (hasBody(connection, code) && "gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+            in = new GZIPInputStream(in);
+        }
+        return in;
+    }
+
+    private static boolean hasBody(HttpURLConnection connection, int code) {
+        if ("HEAD".equals(connection.getRequestMethod())) return false;
+        if (code == HttpURLConnection.HTTP_NO_CONTENT || code == HttpURLConnection.HTTP_NOT_MODIFIED) return false;
+        return connection.getContentLength() != 0;
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        byte[] buffer = BufferPool.get().acquireBytes(READ_BUFFER_BYTES);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(READ_BUFFER_BYTES);
+            int read;
+            while ((read = in.read(buffer, 0, READ_BUFFER_BYTES)) != -1) out.write(buffer, 0, read);
+            return out.toByteArray();
+        } finally {
+            BufferPool.get().release(buffer);
+        }
+    }
+}
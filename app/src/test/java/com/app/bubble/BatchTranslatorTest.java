@@ -0,0 +1,142 @@
+package com.app.bubble;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BatchTranslatorTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private BatchTranslator translator;
+
+    @After
+    public void tearDown() {
+        if (translator != null) translator.shutdown();
+    }
+
+    @Test
+    public void shortSegmentIsNotSplit() {
+        translator = new BatchTranslator(new StubTranslationProvider(0, 0, 0f, 1), 100);
+
+        assertEquals(Arrays.asList("A short line."), translator.split("A short line.", "en"));
+    }
+
+    @Test
+    public void longSegmentIsSplitAtSentencesAndRepacked() {
+        translator = new BatchTranslator(new StubTranslationProvider(0, 0, 0f, 1), 40);
+
+        List<String> pieces = translator.split("First sentence here. Second one follows. And a third.", "en");
+
+        // Sentences that fit together share a piece.
+        assertEquals(Arrays.asList("First sentence here.", "Second one follows. And a third."), pieces);
+    }
+
+    @Test
+    public void oversizedSentenceIsHardSplitWithinBudget() {
+        translator = new BatchTranslator(new StubTranslationProvider(0, 0, 0f, 1), 40);
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < 30; i++) sentence.append("नमस्ते ");
+
+        List<String> pieces = translator.split(sentence.toString().trim(), "hi");
+
+        assertTrue(pieces.size() > 1);
+        StringBuilder joined = new StringBuilder();
+        for (String piece : pieces) {
+            assertTrue(piece, piece.getBytes(UTF_8).length < 40);
+            if (joined.length() > 0) joined.append(' ');
+            joined.append(piece);
+        }
+        assertEquals(sentence.toString().trim(), joined.toString());
+    }
+
+    @Test
+    public void requestsStayWithinBudgetAndResultsKeepOrder() {
+        RecordingProvider provider = new RecordingProvider();
+        translator = new BatchTranslator(provider, 50);
+        List<String> segments = new ArrayList<>();
+        for (int i = 0; i < 40; i++) segments.add("line " + i);
+
+        String[] translations = translator.translate("en", "es", segments, null);
+
+        assertTrue(provider.requests.size() > 1);
+        for (String request : provider.requests) assertTrue(request, request.getBytes(UTF_8).length <= 50);
+        for (int i = 0; i < segments.size(); i++) assertEquals("[es] line " + i, translations[i]);
+    }
+
+    @Test
+    public void splitSegmentIsJoinedBack() {
+        translator = new BatchTranslator(new StubTranslationProvider(0, 0, 0f, 1), 40);
+        List<String> segments = Arrays.asList("before", "First sentence here. Second one follows.", "after");
+
+        String[] translations = translator.translate("en", "es", segments, null);
+
+        assertArrayEquals(new String[] {"[es] before", "[es] First sentence here. [es] Second one follows.", "[es] after"},
+                translations);
+    }
+
+    @Test
+    public void mergedLinesAreRetriedInHalves() {
+        // Merges the lines of any request containing "glue" into one.
+        TranslationProvider merging = new TranslationProvider() {
+            @Override
+            public String translate(String fromLang, String toLang, String text, CancellationToken cancellation) {
+                String translated = "[" + toLang + "] " + text.replace("\n", "\n[" + toLang + "] ");
+                return text.contains("glue") ? translated.replace('\n', ' ') : translated;
+            }
+
+            @Override
+            public String name() {
+                return "merging";
+            }
+        };
+        translator = new BatchTranslator(merging, 1000);
+        List<String> segments = Arrays.asList("one", "two", "glue", "three", "four");
+
+        String[] translations = translator.translate("en", "es", segments, null);
+
+        assertArrayEquals(new String[] {"[es] one", "[es] two", "[es] glue", "[es] three", "[es] four"}, translations);
+    }
+
+    @Test
+    public void anyFailedRequestFailsTheBatch() {
+        translator = new BatchTranslator(new StubTranslationProvider(0, 0, 1f, 1), 20);
+
+        assertNull(translator.translate("en", "es", Arrays.asList("one", "two", "three"), null));
+    }
+
+    @Test
+    public void providerCanBeSwapped() {
+        translator = new BatchTranslator(new StubTranslationProvider(0, 0, 1f, 1), 100);
+        translator.setProvider(new StubTranslationProvider(0, 0, 0f, 1));
+
+        assertArrayEquals(new String[] {"[es] one"}, translator.translate("en", "es", Arrays.asList("one"), null));
+    }
+
+    // Stub translations, remembering every request it was sent.
+    private static final class RecordingProvider implements TranslationProvider {
+        final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+        private final StubTranslationProvider stub = new StubTranslationProvider(0, 0, 0f, 1);
+
+        @Override
+        public String translate(String fromLang, String toLang, String text, CancellationToken cancellation) {
+            requests.add(text);
+            return stub.translate(fromLang, toLang, text, cancellation);
+        }
+
+        @Override
+        public String name() {
+            return "recording";
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.app.bubble;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CancellationTokenTest {
+
+    @Test
+    public void listenersRunOnce() {
+        CancellationToken token = new CancellationToken();
+        AtomicInteger calls = new AtomicInteger();
+        token.register(calls::incrementAndGet);
+
+        token.cancel();
+        token.cancel();
+
+        assertTrue(token.isCancelled());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void lateListenerRunsStraightAway() {
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        AtomicInteger calls = new AtomicInteger();
+
+        token.register(calls::incrementAndGet);
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void unregisteredListenerIsNotCalled() {
+        CancellationToken token = new CancellationToken();
+        AtomicInteger calls = new AtomicInteger();
+        CancellationToken.Listener listener = calls::incrementAndGet;
+        token.register(listener);
+        token.unregister(listener);
+
+        token.cancel();
+
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    public void childFollowsItsParent() {
+        CancellationToken parent = new CancellationToken();
+        CancellationToken child = parent.child();
+
+        parent.cancel();
+
+        assertTrue(child.isCancelled());
+    }
+
+    @Test
+    public void childCanBeCancelledAlone() {
+        CancellationToken parent = new CancellationToken();
+        CancellationToken first = parent.child();
+        CancellationToken second = parent.child();
+
+        first.cancel();
+
+        assertFalse(parent.isCancelled());
+        assertFalse(second.isCancelled());
+    }
+
+    @Test
+    public void releasedChildIsDetached() {
+        CancellationToken parent = new CancellationToken();
+        CancellationToken child = parent.child();
+        child.release();
+
+        parent.cancel();
+
+        assertFalse(child.isCancelled());
+    }
+
+    @Test
+    public void childOfACancelledTokenStartsCancelled() {
+        CancellationToken parent = new CancellationToken();
+        parent.cancel();
+
+        assertTrue(parent.child().isCancelled());
+    }
+}
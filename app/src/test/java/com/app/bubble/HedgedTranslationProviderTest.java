@@ -0,0 +1,141 @@
+package com.app.bubble;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HedgedTranslationProviderTest {
+
+    // Same as HedgedTranslationProvider.
+    private static final long DEFAULT_DELAY_MS = 800;
+    private static final long MIN_DELAY_MS = 150;
+
+    // Advanced only by the providers below, so measured latencies are exact.
+    private final AtomicLong now = new AtomicLong();
+    private final ScriptedProvider primary = new ScriptedProvider("primary");
+    private final ScriptedProvider secondary = new ScriptedProvider("secondary");
+    private final HedgedTranslationProvider hedged = new HedgedTranslationProvider(primary, secondary, now::get);
+
+    @After
+    public void tearDown() {
+        hedged.shutdown();
+    }
+
+    @Test
+    public void fastPrimaryIsNotHedged() {
+        primary.latencyMs = 10;
+
+        assertEquals("primary: hello", hedged.translate("en", "es", "hello", null));
+        assertEquals(0, secondary.calls.get());
+        assertTrue(hedged.toString(), hedged.toString().contains("hedged=0"));
+    }
+
+    @Test
+    public void slowPrimaryLosesToSecondary() {
+        // Instant answers first, so the hedge fires after the shortest delay.
+        for (int i = 0; i < 10; i++) hedged.translate("en", "es", "warm-up", null);
+        primary.blocks = true;
+
+        assertEquals("secondary: hello", hedged.translate("en", "es", "hello", null));
+        assertTrue(hedged.toString(), hedged.toString().contains("hedged=1"));
+        assertTrue(hedged.toString(), hedged.toString().contains("secondaryWins=1"));
+    }
+
+    @Test
+    public void failedPrimaryFallsBackToSecondary() {
+        primary.fails = true;
+
+        assertEquals("secondary: hello", hedged.translate("en", "es", "hello", null));
+        // Asked because the primary failed, not because it was slow.
+        assertTrue(hedged.toString(), hedged.toString().contains("hedged=0"));
+    }
+
+    @Test
+    public void bothFailing() {
+        primary.fails = true;
+        secondary.fails = true;
+
+        assertNull(hedged.translate("en", "es", "hello", null));
+    }
+
+    @Test
+    public void cancelledRequestReturnsNothing() {
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+
+        assertNull(hedged.translate("en", "es", "hello", token));
+    }
+
+    @Test
+    public void hedgeDelayIsThePrimarysP95() {
+        for (int i = 1; i < 10; i++) {
+            primary.latencyMs = i * 100;
+            hedged.translate("en", "es", "hello", null);
+        }
+        // Too few samples yet.
+        assertEquals(DEFAULT_DELAY_MS, hedged.hedgeDelayMs());
+
+        for (int i = 10; i <= 20; i++) {
+            primary.latencyMs = i * 100;
+            hedged.translate("en", "es", "hello", null);
+        }
+        // 19th of the 20 sorted latencies.
+        assertEquals(1900, hedged.hedgeDelayMs());
+    }
+
+    @Test
+    public void hedgeDelayHasAFloor() {
+        for (int i = 0; i < 20; i++) hedged.translate("en", "es", "hello", null);
+
+        assertEquals(MIN_DELAY_MS, hedged.hedgeDelayMs());
+    }
+
+    @Test
+    public void failedAnswersDoNotCountAsLatency() {
+        primary.latencyMs = 5000;
+        primary.fails = true;
+        for (int i = 0; i < 20; i++) hedged.translate("en", "es", "hello", null);
+
+        assertEquals(DEFAULT_DELAY_MS, hedged.hedgeDelayMs());
+    }
+
+    // Answers "<name>: <text>" after moving the test clock on by latencyMs, or fails, or blocks
+    // until it is interrupted. Never sleeps, so no result depends on real timing.
+    private final class ScriptedProvider implements TranslationProvider {
+        final String name;
+        final AtomicInteger calls = new AtomicInteger();
+        volatile long latencyMs = 0;
+        volatile boolean fails = false;
+        volatile boolean blocks = false;
+
+        ScriptedProvider(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String translate(String fromLang, String toLang, String text, CancellationToken cancellation) {
+            calls.incrementAndGet();
+            if (blocks) {
+                try {
+                    Thread.sleep(Long.MAX_VALUE);
+                } catch (InterruptedException e) {
+                    return null;
+                }
+            }
+            now.addAndGet(latencyMs);
+            if (fails || (cancellation != null && cancellation.isCancelled())) return null;
+            return name + ": " + text;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+    }
+}
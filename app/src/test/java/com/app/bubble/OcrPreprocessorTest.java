@@ -0,0 +1,82 @@
+package com.app.bubble;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class OcrPreprocessorTest {
+
+    // Same as OcrPreprocessor.
+    private static final int WINDOW_RADIUS = 12;
+    private static final int THRESHOLD_PERCENT = 15;
+
+    @Test
+    public void flatImageIsAllPaper() {
+        byte[] y = new byte[40 * 30];
+        Arrays.fill(y, (byte) 200);
+
+        OcrPreprocessor.binarize(y, 40, 30, new int[40]);
+
+        for (byte value : y) assertEquals(255, value & 0xFF);
+    }
+
+    @Test
+    public void darkStrokesOnLightPaperAreInk() {
+        int width = 60, height = 40;
+        byte[] y = new byte[width * height];
+        Arrays.fill(y, (byte) 220);
+        // A horizontal stroke, like the bar of a letter.
+        for (int x = 10; x < 50; x++) {
+            y[20 * width + x] = (byte) 40;
+            y[21 * width + x] = (byte) 40;
+        }
+
+        OcrPreprocessor.binarize(y, width, height, new int[width]);
+
+        assertEquals(0, y[20 * width + 30] & 0xFF);
+        assertEquals(0, y[21 * width + 30] & 0xFF);
+        assertEquals(255, y[10 * width + 30] & 0xFF);
+        assertEquals(255, y[20 * width + 5] & 0xFF);
+    }
+
+    @Test
+    public void slidingWindowMatchesDirectComputation() {
+        Random random = new Random(1);
+        // Sizes around the window: smaller than it, equal, larger, and odd.
+        int[][] sizes = {{7, 5}, {25, 25}, {64, 48}, {101, 37}};
+        for (int[] size : sizes) {
+            int width = size[0], height = size[1];
+            byte[] y = new byte[width * height];
+            random.nextBytes(y);
+
+            byte[] expected = reference(y, width, height);
+            OcrPreprocessor.binarize(y, width, height, new int[width]);
+
+            assertEquals(width + "x" + height, Arrays.toString(expected), Arrays.toString(y));
+        }
+    }
+
+    // Local-mean threshold with every window summed from scratch.
+    private static byte[] reference(byte[] y, int width, int height) {
+        byte[] out = new byte[y.length];
+        for (int row = 0; row < height; row++) {
+            for (int x = 0; x < width; x++) {
+                long sum = 0;
+                long count = 0;
+                for (int r = Math.max(0, row - WINDOW_RADIUS); r <= Math.min(height - 1, row + WINDOW_RADIUS); r++) {
+                    for (int c = Math.max(0, x - WINDOW_RADIUS); c <= Math.min(width - 1, x + WINDOW_RADIUS); c++) {
+                        sum += y[r * width + c] & 0xFF;
+                        count++;
+                    }
+                }
+                int gray = y[row * width + x] & 0xFF;
+                boolean ink = gray * count * 100 < sum * (100 - THRESHOLD_PERCENT);
+                out[row * width + x] = ink ? 0 : (byte) 255;
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,134 @@
+package com.app.bubble;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class OverlapFinderTest {
+
+    private static final int WIDTH = 16;
+
+    @Test
+    public void flatRowsAreBlank() {
+        int[] pixels = new int[WIDTH * 2];
+        Arrays.fill(pixels, 0, WIDTH, 0xFFFFFFFF);
+        Arrays.fill(pixels, WIDTH, 2 * WIDTH, 0xFF000000);
+
+        int[] hashes = OverlapFinder.rowHashes(pixels, WIDTH, 2);
+
+        assertEquals(OverlapFinder.BLANK_ROW, hashes[0]);
+        assertEquals(OverlapFinder.BLANK_ROW, hashes[1]);
+    }
+
+    @Test
+    public void lowColourBitsAreIgnored() {
+        int[] pixels = page(new Random(1), 1);
+        int[] noisy = pixels.clone();
+        for (int i = 0; i < noisy.length; i++) noisy[i] ^= 0x00030303;
+
+        int[] hashes = OverlapFinder.rowHashes(pixels, WIDTH, 1);
+        assertNotEquals(OverlapFinder.BLANK_ROW, hashes[0]);
+        assertEquals(hashes[0], OverlapFinder.rowHashes(noisy, WIDTH, 1)[0]);
+    }
+
+    @Test
+    public void bandedHashesMatchWholeFrame() {
+        int rows = 20;
+        int[] pixels = page(new Random(2), rows);
+        int[] whole = OverlapFinder.rowHashes(pixels, WIDTH, rows);
+
+        int[] banded = new int[rows];
+        int[] band = new int[WIDTH * 8];
+        for (int y = 0; y < rows; y += 8) {
+            int bandRows = Math.min(8, rows - y);
+            System.arraycopy(pixels, y * WIDTH, band, 0, bandRows * WIDTH);
+            OverlapFinder.rowHashes(band, WIDTH, bandRows, banded, y);
+        }
+
+        assertEquals(Arrays.toString(whole), Arrays.toString(banded));
+    }
+
+    @Test
+    public void findsScrollOffset() {
+        int[] content = textRows(new Random(3), 300);
+        int[] top = Arrays.copyOfRange(content, 0, 200);
+        int[] bottom = Arrays.copyOfRange(content, 70, 270);
+
+        OverlapFinder.Result result = OverlapFinder.find(top, bottom);
+
+        assertEquals(130, result.overlap);
+        assertEquals(1f, result.confidence, 0f);
+    }
+
+    @Test
+    public void unrelatedFramesDoNotMatch() {
+        OverlapFinder.Result result = OverlapFinder.find(textRows(new Random(4), 200), textRows(new Random(5), 200));
+
+        assertSame(OverlapFinder.Result.NONE, result);
+    }
+
+    @Test
+    public void blankFramesDoNotMatch() {
+        OverlapFinder.Result result = OverlapFinder.find(new int[100], new int[100]);
+
+        assertSame(OverlapFinder.Result.NONE, result);
+    }
+
+    @Test
+    public void skipsStickyBars() {
+        Random random = new Random(6);
+        int[] content = textRows(random, 300);
+        int[] toolbar = textRows(random, 10);
+        int[] top = withBars(toolbar, Arrays.copyOfRange(content, 0, 180), toolbar);
+        int[] bottom = withBars(toolbar, Arrays.copyOfRange(content, 50, 230), toolbar);
+
+        OverlapFinder.Result result = OverlapFinder.find(top, bottom, 10, 10);
+
+        assertEquals(130, result.overlap);
+        assertTrue(result.confidence > 0.99f);
+    }
+
+    @Test
+    public void partialMatchLowersConfidence() {
+        int[] content = textRows(new Random(7), 300);
+        int[] top = Arrays.copyOfRange(content, 0, 200);
+        int[] bottom = Arrays.copyOfRange(content, 100, 300);
+        // A cursor blinked on a few rows of the overlap.
+        for (int y = 40; y < 45; y++) bottom[y] = ~bottom[y];
+
+        OverlapFinder.Result result = OverlapFinder.find(top, bottom);
+
+        assertEquals(100, result.overlap);
+        assertTrue(result.confidence < 1f);
+        assertTrue(result.confidence > 0.9f);
+    }
+
+    // Row hashes of a text-like page: lines of text separated by blank gaps.
+    private static int[] textRows(Random random, int rows) {
+        int[] hashes = new int[rows];
+        for (int y = 0; y < rows; y++) {
+            hashes[y] = (y % 12 < 9) ? random.nextInt() | 1 : OverlapFinder.BLANK_ROW;
+        }
+        return hashes;
+    }
+
+    private static int[] page(Random random, int rows) {
+        int[] pixels = new int[WIDTH * rows];
+        for (int i = 0; i < pixels.length; i++) pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        return pixels;
+    }
+
+    private static int[] withBars(int[] header, int[] content, int[] footer) {
+        int[] rows = new int[header.length + content.length + footer.length];
+        System.arraycopy(header, 0, rows, 0, header.length);
+        System.arraycopy(content, 0, rows, header.length, content.length);
+        System.arraycopy(footer, 0, rows, header.length + content.length, footer.length);
+        return rows;
+    }
+}
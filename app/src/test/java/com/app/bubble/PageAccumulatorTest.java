@@ -0,0 +1,130 @@
+package com.app.bubble;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PageAccumulatorTest {
+
+    @Test
+    public void overlappingPagesAreJoined() {
+        PageAccumulator accumulator = new PageAccumulator();
+        accumulator.addPage(lines("one", "two", "three", "four"));
+
+        int added = accumulator.addPage(lines("three", "four", "five", "six"));
+
+        assertEquals(2, added);
+        assertEquals("one\ntwo\nthree\nfour\nfive\nsix", accumulator.getText());
+    }
+
+    @Test
+    public void ocrNoiseAtTheSeamStillMatches() {
+        PageAccumulator accumulator = new PageAccumulator();
+        accumulator.addPage(lines("Hello there,", "how are you?"));
+
+        accumulator.addPage(lines("hello  there", "How are you", "Fine."));
+
+        assertEquals(3, accumulator.getLineCount());
+    }
+
+    @Test
+    public void linesCutAtEitherEdgeAreSkipped() {
+        PageAccumulator accumulator = new PageAccumulator();
+        accumulator.addPage(lines("alpha", "bravo", "charlie", "delta", "ec#o"));
+
+        // The top line of the new page is half cut off, the old page's last line was misread.
+        accumulator.addPage(lines("xx", "charlie", "delta", "echo", "foxtrot"));
+
+        assertEquals("alpha\nbravo\ncharlie\ndelta\necho\nfoxtrot", accumulator.getText());
+    }
+
+    @Test
+    public void unrelatedPagesAreSeparated() {
+        PageAccumulator accumulator = new PageAccumulator();
+        accumulator.addPage(lines("first page", "more"));
+
+        accumulator.addPage(lines("second page", "other"));
+
+        assertEquals("first page\nmore\n\nsecond page\nother", accumulator.getText());
+    }
+
+    @Test
+    public void shortSingleLineOverlapIsNotTrusted() {
+        PageAccumulator accumulator = new PageAccumulator();
+        accumulator.addPage(lines("message one", "Reply"));
+
+        int added = accumulator.addPage(lines("Reply", "message two"));
+
+        assertEquals(2, added);
+    }
+
+    @Test
+    public void longSingleLineOverlapIsTrusted() {
+        PageAccumulator accumulator = new PageAccumulator();
+        accumulator.addPage(lines("intro", "a rather long sentence that ends the page"));
+
+        int added = accumulator.addPage(lines("a rather long sentence that ends the page", "next"));
+
+        assertEquals(1, added);
+    }
+
+    @Test
+    public void repeatedPageAddsNothing() {
+        PageAccumulator accumulator = new PageAccumulator();
+        accumulator.addPage(lines("a", "b", "c"));
+
+        assertEquals(0, accumulator.addPage(lines("a", "b", "c")));
+        assertEquals(3, accumulator.getLineCount());
+    }
+
+    @Test
+    public void punctuationOnlyLinesAreIgnored() {
+        PageAccumulator accumulator = new PageAccumulator();
+
+        assertEquals(0, accumulator.addPage(lines("...", " - ", "")));
+        assertTrue(accumulator.isEmpty());
+    }
+
+    @Test
+    public void kmpFindsLongestSuffixPrefix() {
+        // Text ends with "a b a b a"; the pattern starts with "a b a b a c".
+        List<Long> text = hashes(1, 2, 1, 2, 1, 2, 1);
+        List<Long> pattern = hashes(1, 2, 1, 2, 1, 3);
+
+        assertEquals(5, PageAccumulator.suffixPrefixOverlap(text, 0, text.size(), pattern, 0));
+        // Only the range [start, end) of the text counts.
+        assertEquals(3, PageAccumulator.suffixPrefixOverlap(text, 0, 3, pattern, 0));
+        // The pattern may start later.
+        assertEquals(0, PageAccumulator.suffixPrefixOverlap(text, 0, text.size(), pattern, 5));
+    }
+
+    @Test
+    public void kmpWholePatternInsideText() {
+        List<Long> text = hashes(7, 8, 9, 7, 8);
+        List<Long> pattern = hashes(7, 8);
+
+        assertEquals(2, PageAccumulator.suffixPrefixOverlap(text, 0, text.size(), pattern, 0));
+    }
+
+    @Test
+    public void normalizeKeepsLettersDigitsAndMarks() {
+        assertEquals("hello42", PageAccumulator.normalize(" Hello, 4-2! "));
+        // Devanagari vowel signs are combining marks and must survive.
+        assertEquals("नमस्ते", PageAccumulator.normalize("नमस्ते।"));
+    }
+
+    private static List<String> lines(String... lines) {
+        return new ArrayList<>(Arrays.asList(lines));
+    }
+
+    private static List<Long> hashes(long... values) {
+        List<Long> result = new ArrayList<>();
+        for (long value : values) result.add(value);
+        return result;
+    }
+}
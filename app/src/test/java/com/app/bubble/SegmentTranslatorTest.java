@@ -0,0 +1,122 @@
+package com.app.bubble;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentTranslatorTest {
+
+    private File logFile;
+    private TranslationCache cache;
+    private BatchTranslator batchTranslator;
+    private RecordingProvider provider;
+    private SegmentTranslator translator;
+
+    @Before
+    public void setUp() throws IOException {
+        logFile = File.createTempFile("segments", ".log");
+        logFile.delete();
+        cache = new TranslationCache(logFile);
+        provider = new RecordingProvider(new StubTranslationProvider(0, 0, 0f, 1));
+        batchTranslator = new BatchTranslator(provider, BatchTranslator.DEFAULT_CHUNK_BYTES);
+        translator = new SegmentTranslator(cache, batchTranslator);
+    }
+
+    @After
+    public void tearDown() {
+        batchTranslator.shutdown();
+        cache.close();
+        logFile.delete();
+        new File(logFile.getPath() + ".tmp").delete();
+    }
+
+    @Test
+    public void onlyUntranslatedLinesAreSent() {
+        cache.put("en", "es", "two", "dos");
+
+        String result = translator.translate("en", "es", "one\ntwo\n\nthree\none", null);
+
+        // Cached and fresh lines back in their places, blank lines kept.
+        assertEquals("[es] one\ndos\n\n[es] three\n[es] one", result);
+        // "two" came from the cache and the repeated "one" was sent once.
+        assertEquals(Arrays.asList("one", "three"), provider.sentLines());
+    }
+
+    @Test
+    public void freshLinesAreCachedForTheNextRequest() {
+        translator.translate("en", "es", "one\ntwo", null);
+        provider.requests.clear();
+
+        // A new message below the same two lines.
+        String result = translator.translate("en", "es", "one\ntwo\nthree", null);
+
+        assertEquals("[es] one\n[es] two\n[es] three", result);
+        assertEquals(Arrays.asList("three"), provider.sentLines());
+    }
+
+    @Test
+    public void fullyCachedTextSendsNothing() {
+        cache.put("en", "es", "hello", "hola");
+
+        assertEquals("hola", translator.translate("en", "es", "  hello ", null));
+        assertTrue(provider.requests.isEmpty());
+    }
+
+    @Test
+    public void targetLanguageIsPartOfTheLookup() {
+        translator.translate("en", "es", "one", null);
+        provider.requests.clear();
+
+        assertEquals("[fr] one", translator.translate("en", "fr", "one", null));
+        assertEquals(Arrays.asList("one"), provider.sentLines());
+    }
+
+    @Test
+    public void failedRequestCachesNothing() {
+        batchTranslator.setProvider(new StubTranslationProvider(0, 0, 1f, 1));
+
+        assertNull(translator.translate("en", "es", "one\ntwo", null));
+        assertNull(cache.get("en", "es", "one"));
+    }
+
+    // Passes requests on to a stub, remembering each one.
+    private static final class RecordingProvider implements TranslationProvider {
+        final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+        private final TranslationProvider stub;
+
+        RecordingProvider(TranslationProvider stub) {
+            this.stub = stub;
+        }
+
+        // Every line sent so far, in order.
+        List<String> sentLines() {
+            List<String> lines = new ArrayList<>();
+            synchronized (requests) {
+                for (String request : requests) lines.addAll(Arrays.asList(request.split("\n")));
+            }
+            return lines;
+        }
+
+        @Override
+        public String translate(String fromLang, String toLang, String text, CancellationToken cancellation) {
+            requests.add(text);
+            return stub.translate(fromLang, toLang, text, cancellation);
+        }
+
+        @Override
+        public String name() {
+            return "recording";
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.app.bubble;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SseParserTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void eventsAreSplitOnBlankLines() throws IOException {
+        assertEquals(Arrays.asList("one", "two"), parse("data: one\n\ndata: two\n\n", 4096));
+    }
+
+    @Test
+    public void multipleDataFieldsAreJoined() throws IOException {
+        assertEquals(Arrays.asList("first\nsecond"), parse("data: first\ndata: second\n\n", 4096));
+    }
+
+    @Test
+    public void commentsAndOtherFieldsAreSkipped() throws IOException {
+        assertEquals(Arrays.asList("payload"), parse(": keep-alive\nevent: message\nid: 3\ndata:payload\n\n", 4096));
+    }
+
+    @Test
+    public void allLineEndingsAreAccepted() throws IOException {
+        assertEquals(Arrays.asList("a", "b", "c"), parse("data: a\r\n\r\ndata: b\r\rdata: c\n\n", 4096));
+    }
+
+    @Test
+    public void finalEventWithoutBlankLineCounts() throws IOException {
+        assertEquals(Arrays.asList("done"), parse("data: done", 4096));
+    }
+
+    @Test
+    public void characterSplitAcrossReadsIsNotGarbled() throws IOException {
+        String text = "data: नमस्ते दुनिया\r\n\r\ndata: ünïcödé\n\n";
+        // One byte per read cuts every multi-byte character, and the \r\n pairs, in half.
+        assertEquals(Arrays.asList("नमस्ते दुनिया", "ünïcödé"), parse(text, 1));
+    }
+
+    @Test
+    public void listenerCanStopReading() throws IOException {
+        final List<String> events = new ArrayList<>();
+        SseParser parser = new SseParser(new SseParser.Listener() {
+            @Override
+            public boolean onEvent(String data) {
+                events.add(data);
+                return false;
+            }
+        });
+
+        parser.readFrom(stream("data: one\n\ndata: two\n\n", 4096));
+
+        assertEquals(Arrays.asList("one"), events);
+    }
+
+    private static List<String> parse(String text, int bytesPerRead) throws IOException {
+        final List<String> events = new ArrayList<>();
+        SseParser parser = new SseParser(new SseParser.Listener() {
+            @Override
+            public boolean onEvent(String data) {
+                events.add(data);
+                return true;
+            }
+        });
+        parser.readFrom(stream(text, bytesPerRead));
+        return events;
+    }
+
+    // Hands out at most bytesPerRead bytes per read, like a slow network.
+    private static InputStream stream(String text, final int bytesPerRead) {
+        return new ByteArrayInputStream(text.getBytes(UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, bytesPerRead));
+            }
+        };
+    }
+}
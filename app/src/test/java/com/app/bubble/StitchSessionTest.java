@@ -0,0 +1,187 @@
+package com.app.bubble;
+
+import android.graphics.Bitmap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class StitchSessionTest {
+
+    private static final int WIDTH = 24;
+    private static final int HEADER = 10;
+    private static final int FOOTER = 8;
+    private static final int CONTENT = 182;
+    private static final int SCROLL = 60;
+
+    private final Random random = new Random(7);
+    private final int[] header = rows(HEADER);
+    private final int[] footer = rows(FOOTER);
+    private final int[] page = rows(2000);
+
+    private StitchSession session;
+
+    @Before
+    public void setUp() {
+        session = new StitchSession(null);
+        session.begin();
+    }
+
+    @After
+    public void tearDown() {
+        session.shutdown();
+    }
+
+    @Test
+    public void noFramesGiveNoCanvas() throws IOException {
+        assertNull(session.finish());
+    }
+
+    @Test
+    public void singleFrameIsKeptWhole() throws IOException {
+        session.offer(frame(0));
+
+        StripCanvas canvas = session.finish();
+        try {
+            assertRows(expected(0, CONTENT), canvas);
+        } finally {
+            canvas.close();
+        }
+    }
+
+    @Test
+    public void onlyTheLastFooterIsKept() throws IOException {
+        int frames = 12;
+        for (int i = 0; i < frames; i++) session.offer(frame(i * SCROLL));
+
+        StripCanvas canvas = session.finish();
+        try {
+            // Header of the first frame, each row of content once, footer of the last frame.
+            assertRows(expected(0, (frames - 1) * SCROLL + CONTENT), canvas);
+            assertEquals(frames, session.getFrameCount());
+        } finally {
+            canvas.close();
+        }
+    }
+
+    @Test
+    public void stripsAreReportedInOrderWithoutGaps() throws IOException {
+        final int[] reported = {0};
+        session.setStripListener(new StitchSession.StripListener() {
+            @Override
+            public void onStripAppended(StripCanvas canvas, int top, int rowCount) {
+                assertEquals(reported[0], top);
+                assertEquals(top + rowCount, canvas.getHeight());
+                reported[0] += rowCount;
+            }
+        });
+        for (int i = 0; i < 8; i++) session.offer(frame(i * SCROLL));
+
+        StripCanvas canvas = session.finish();
+        try {
+            // Everything but the last frame's footer, which is only added by finish().
+            assertEquals(canvas.getHeight() - FOOTER, reported[0]);
+        } finally {
+            canvas.close();
+        }
+    }
+
+    @Test
+    public void sessionCanBeReused() throws IOException {
+        session.offer(frame(0));
+        session.offer(frame(SCROLL));
+        session.begin();
+        for (int i = 1; i <= 3; i++) session.offer(frame(i * SCROLL));
+
+        StripCanvas canvas = session.finish();
+        try {
+            assertRows(expected(SCROLL, 2 * SCROLL + CONTENT), canvas);
+        } finally {
+            canvas.close();
+        }
+    }
+
+    @Test
+    public void unchangedFramesAreDropped() throws IOException {
+        assertTrue(session.offerIfChanged(frame(0)));
+        assertFalse(session.offerIfChanged(frame(0)));
+        assertTrue(session.offerIfChanged(frame(SCROLL)));
+        assertFalse(session.offerIfChanged(frame(SCROLL)));
+        assertTrue(session.offerIfChanged(frame(2 * SCROLL)));
+
+        assertEquals(3, session.getFrameCount());
+        assertEquals(2, session.getDroppedCount());
+        StripCanvas canvas = session.finish();
+        try {
+            assertRows(expected(0, 2 * SCROLL + CONTENT), canvas);
+        } finally {
+            canvas.close();
+        }
+    }
+
+    @Test
+    public void tooFewFramesForStaticRegionsKeepTheFirstFrameWhole() throws IOException {
+        session.offer(frame(0));
+        session.offer(frame(SCROLL));
+
+        StripCanvas canvas = session.finish();
+        try {
+            // Without known static regions the first frame's footer is not cut away.
+            Bitmap top = canvas.copyRegion(0, HEADER + CONTENT + FOOTER);
+            int[] actual = new int[(HEADER + CONTENT + FOOTER) * WIDTH];
+            top.getPixels(actual, 0, WIDTH, 0, 0, WIDTH, HEADER + CONTENT + FOOTER);
+            BufferPool.get().release(top);
+            int[] first = new int[actual.length];
+            frame(0).getPixels(first, 0, WIDTH, 0, 0, WIDTH, HEADER + CONTENT + FOOTER);
+            assertArrayEquals(first, actual);
+        } finally {
+            canvas.close();
+        }
+    }
+
+    // A frame showing the sticky header, CONTENT rows of the page from 'top', and the sticky footer.
+    private Bitmap frame(int top) {
+        Bitmap frame = Bitmap.createBitmap(WIDTH, HEADER + CONTENT + FOOTER, Bitmap.Config.ARGB_8888);
+        frame.setPixels(header, 0, WIDTH, 0, 0, WIDTH, HEADER);
+        frame.setPixels(page, top * WIDTH, WIDTH, 0, HEADER, WIDTH, CONTENT);
+        frame.setPixels(footer, 0, WIDTH, 0, HEADER + CONTENT, WIDTH, FOOTER);
+        return frame;
+    }
+
+    // The header, 'contentRows' rows of the page from 'top', and the footer.
+    private int[] expected(int top, int contentRows) {
+        int[] pixels = new int[(HEADER + contentRows + FOOTER) * WIDTH];
+        System.arraycopy(header, 0, pixels, 0, header.length);
+        System.arraycopy(page, top * WIDTH, pixels, HEADER * WIDTH, contentRows * WIDTH);
+        System.arraycopy(footer, 0, pixels, (HEADER + contentRows) * WIDTH, footer.length);
+        return pixels;
+    }
+
+    private static void assertRows(int[] expected, StripCanvas canvas) throws IOException {
+        assertEquals(expected.length / WIDTH, canvas.getHeight());
+        Bitmap copy = canvas.copyRegion(0, canvas.getHeight());
+        int[] actual = new int[expected.length];
+        copy.getPixels(actual, 0, WIDTH, 0, 0, WIDTH, canvas.getHeight());
+        BufferPool.get().release(copy);
+        assertArrayEquals(expected, actual);
+    }
+
+    // Rows of opaque noise, so every row hashes differently.
+    private int[] rows(int count) {
+        int[] pixels = new int[count * WIDTH];
+        for (int i = 0; i < pixels.length; i++) pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        return pixels;
+    }
+}
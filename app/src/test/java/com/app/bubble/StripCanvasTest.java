@@ -0,0 +1,161 @@
+package com.app.bubble;
+
+import android.graphics.Bitmap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class StripCanvasTest {
+
+    private static final int WIDTH = 8;
+    private static final int TILE = StripCanvas.TILE_HEIGHT;
+    // More full tiles than the canvas caches, plus a partly written one.
+    private static final int ROWS = 5 * TILE + 100;
+
+    private File spillFile;
+    private StripCanvas canvas;
+
+    @Before
+    public void setUp() throws IOException {
+        spillFile = File.createTempFile("canvas", ".tiles");
+    }
+
+    @After
+    public void tearDown() {
+        if (canvas != null) canvas.close();
+        spillFile.delete();
+    }
+
+    @Test
+    public void fullTilesAreSpilledToTheFile() throws IOException {
+        canvas = new StripCanvas(WIDTH, spillFile);
+        appendPage(canvas, ROWS, 300);
+
+        assertEquals(ROWS, canvas.getHeight());
+        // Every full tile went to the file; the partly written one stays in memory.
+        assertEquals(5L * TILE * WIDTH * 4, spillFile.length());
+    }
+
+    @Test
+    public void regionsAcrossTileBoundariesReadBack() throws IOException {
+        canvas = new StripCanvas(WIDTH, spillFile);
+        appendPage(canvas, ROWS, 300);
+
+        // Within one tile, across one boundary, across several (evicting cached tiles), into the
+        // tile still being written, and everything.
+        int[][] regions = {{10, 20}, {TILE - 5, 10}, {TILE / 2, 3 * TILE}, {0, TILE}, {5 * TILE - 1, 101}, {0, ROWS}};
+        for (int[] region : regions) assertRegion(canvas, region[0], region[1]);
+        // Tiles read back from the file in a different order.
+        assertRegion(canvas, 4 * TILE + 7, 30);
+        assertRegion(canvas, 7, 30);
+    }
+
+    @Test
+    public void inMemoryCanvasReadsBackTheSame() throws IOException {
+        canvas = new StripCanvas(WIDTH, null);
+        appendPage(canvas, ROWS, 300);
+
+        assertRegion(canvas, TILE - 5, 10);
+        assertRegion(canvas, 0, ROWS);
+    }
+
+    @Test
+    public void onlyTheRequestedRowsAreAppended() throws IOException {
+        canvas = new StripCanvas(WIDTH, null);
+        Bitmap source = page(0, 50);
+        canvas.appendBitmap(source, 10, 20);
+        // Out-of-range limits are clamped to the bitmap.
+        canvas.appendBitmap(source, 45, 80);
+
+        assertEquals(15, canvas.getHeight());
+        Bitmap copy = canvas.copyRegion(0, 15);
+        assertEquals(pixel(10, 0), copy.getPixel(0, 0));
+        assertEquals(pixel(19, 3), copy.getPixel(3, 9));
+        assertEquals(pixel(45, 0), copy.getPixel(0, 10));
+        BufferPool.get().release(copy);
+    }
+
+    @Test
+    public void narrowBitmapsArePaddedAndWideOnesCropped() throws IOException {
+        canvas = new StripCanvas(WIDTH, null);
+        Bitmap narrow = Bitmap.createBitmap(WIDTH / 2, 2, Bitmap.Config.ARGB_8888);
+        narrow.eraseColor(0xFF123456);
+        Bitmap wide = Bitmap.createBitmap(WIDTH * 2, 2, Bitmap.Config.ARGB_8888);
+        wide.eraseColor(0xFF654321);
+        canvas.appendBitmap(narrow, 0, 2);
+        canvas.appendBitmap(wide, 0, 2);
+
+        Bitmap copy = canvas.copyRegion(0, 4);
+        assertEquals(0xFF123456, copy.getPixel(0, 0));
+        assertEquals(0, copy.getPixel(WIDTH - 1, 1));
+        assertEquals(0xFF654321, copy.getPixel(WIDTH - 1, 3));
+        BufferPool.get().release(copy);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void regionBelowTheBottomIsRejected() throws IOException {
+        canvas = new StripCanvas(WIDTH, null);
+        appendPage(canvas, 100, 100);
+
+        canvas.copyRegion(90, 11);
+    }
+
+    @Test
+    public void closeDeletesTheSpillFile() throws IOException {
+        canvas = new StripCanvas(WIDTH, spillFile);
+        appendPage(canvas, 2 * TILE, 300);
+        assertTrue(spillFile.exists());
+
+        canvas.close();
+        canvas = null;
+
+        assertFalse(spillFile.exists());
+    }
+
+    // Appends rows [0, rows) of the test page in bitmaps of at most 'step' rows.
+    private static void appendPage(StripCanvas canvas, int rows, int step) throws IOException {
+        for (int top = 0; top < rows; top += step) {
+            canvas.appendBitmap(page(top, Math.min(step, rows - top)), 0, step);
+        }
+    }
+
+    private static void assertRegion(StripCanvas canvas, int top, int rowCount) throws IOException {
+        Bitmap copy = canvas.copyRegion(top, rowCount);
+        int[] actual = new int[rowCount * WIDTH];
+        copy.getPixels(actual, 0, WIDTH, 0, 0, WIDTH, rowCount);
+        BufferPool.get().release(copy);
+
+        int[] expected = new int[rowCount * WIDTH];
+        for (int y = 0; y < rowCount; y++) {
+            for (int x = 0; x < WIDTH; x++) expected[y * WIDTH + x] = pixel(top + y, x);
+        }
+        assertArrayEquals("rows " + top + "+" + rowCount, expected, actual);
+    }
+
+    // Rows [top, top + rows) of a page in which every pixel is different.
+    private static Bitmap page(int top, int rows) {
+        Bitmap bitmap = Bitmap.createBitmap(WIDTH, rows, Bitmap.Config.ARGB_8888);
+        int[] pixels = new int[rows * WIDTH];
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < WIDTH; x++) pixels[y * WIDTH + x] = pixel(top + y, x);
+        }
+        bitmap.setPixels(pixels, 0, WIDTH, 0, 0, WIDTH, rows);
+        return bitmap;
+    }
+
+    private static int pixel(int row, int x) {
+        return 0xFF000000 | (row * WIDTH + x);
+    }
+}
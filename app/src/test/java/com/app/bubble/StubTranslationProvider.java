@@ -0,0 +1,61 @@
+package com.app.bubble;
+
+import java.util.Random;
+
+/**
+ * An in-process provider for tests: answers after a configurable delay, fails a
+ * configurable share of requests, and never touches the network.
+ *
+ * The "translation" is the input with every line prefixed by the target code ("[ml] ..."), so
+ * results can be checked for order and completeness.
+ */
+public class StubTranslationProvider implements TranslationProvider {
+
+    private final long latencyMs;
+    private final long jitterMs;
+    private final float errorRate;
+    private final Random random;
+
+    /**
+     * @param latencyMs Base delay of every answer.
+     * @param jitterMs Up to this much is added at random, to mimic a slow tail.
+     * @param errorRate Share of requests, 0 to 1, that fail (return null).
+     * @param seed Seed for the random delays and failures, so runs can be repeated.
+     */
+    public StubTranslationProvider(long latencyMs, long jitterMs, float errorRate, long seed) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.errorRate = errorRate;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public String translate(String fromLang, String toLang, String text, CancellationToken cancellation) {
+        long delay;
+        boolean fail;
+        synchronized (random) {
+            delay = latencyMs + (jitterMs > 0 ? (long) (random.nextDouble() * jitterMs) : 0);
+            fail = random.nextFloat() < errorRate;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        if (fail || (cancellation != null && cancellation.isCancelled())) return null;
+
+        StringBuilder result = new StringBuilder();
+        String[] lines = text.split("\n", -1);
+        for (int i = 0; i < lines.length; i++) {
+            if (i > 0) result.append('\n');
+            result.append('[').append(toLang).append("] ").append(lines[i]);
+        }
+        return result.toString();
+    }
+
+    @Override
+    public String name() {
+        return "stub";
+    }
+}
@@ -0,0 +1,156 @@
+package com.app.bubble;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TranslationCacheTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private File logFile;
+    private TranslationCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        logFile = File.createTempFile("translations", ".log");
+        logFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        if (cache != null) cache.close();
+        logFile.delete();
+        new File(logFile.getPath() + ".tmp").delete();
+    }
+
+    @Test
+    public void spacingDoesNotChangeTheKey() {
+        cache = new TranslationCache(logFile);
+        cache.put("en", "es", "Hello  world\n", "Hola mundo");
+
+        assertEquals("Hola mundo", cache.get("en", "es", " Hello world"));
+        assertNull(cache.get("en", "fr", "Hello world"));
+    }
+
+    @Test
+    public void entriesSurviveReopening() {
+        cache = new TranslationCache(logFile);
+        cache.put("en", "es", "cat", "gato");
+        cache.put("en", "es", "cat", "gata");
+        cache.close();
+
+        cache = new TranslationCache(logFile);
+        assertEquals("gata", cache.get("en", "es", "cat"));
+        assertTrue(cache.toString(), cache.toString().contains("diskHits=1"));
+    }
+
+    @Test
+    public void tornRecordIsCutOff() throws IOException {
+        cache = new TranslationCache(logFile);
+        cache.put("en", "es", "dog", "perro");
+        cache.close();
+        long intact = logFile.length();
+
+        // A crash in the middle of writing the next record.
+        RandomAccessFile log = new RandomAccessFile(logFile, "rw");
+        log.seek(intact);
+        log.writeLong(System.currentTimeMillis());
+        log.writeUTF(TranslationCache.key("en", "es", "bird"));
+        log.writeInt(100);
+        log.write("pája".getBytes(UTF_8));
+        log.close();
+
+        cache = new TranslationCache(logFile);
+        assertEquals("perro", cache.get("en", "es", "dog"));
+        assertNull(cache.get("en", "es", "bird"));
+        assertEquals(intact, logFile.length());
+
+        // Appending after the cut works.
+        cache.put("en", "es", "bird", "pájaro");
+        cache.close();
+        cache = new TranslationCache(logFile);
+        assertEquals("pájaro", cache.get("en", "es", "bird"));
+    }
+
+    @Test
+    public void expiredEntriesAreIgnored() throws IOException {
+        writeRecord(System.currentTimeMillis() - 31 * DAY_MS, TranslationCache.key("en", "es", "old"), "viejo");
+        writeRecord(System.currentTimeMillis() - 29 * DAY_MS, TranslationCache.key("en", "es", "recent"), "reciente");
+
+        cache = new TranslationCache(logFile);
+        assertNull(cache.get("en", "es", "old"));
+        assertEquals("reciente", cache.get("en", "es", "recent"));
+    }
+
+    @Test
+    public void compactionKeepsTheNewestEntriesWithHeadroom() throws IOException {
+        writeRecord(System.currentTimeMillis() - DAY_MS, TranslationCache.key("en", "es", "oldest"), "antiguo");
+        cache = new TranslationCache(logFile);
+        for (int i = 0; i < 2000; i++) cache.put("en", "es", "line " + i, "línea " + i);
+
+        // Over the limit: compacted to 3/4 of it, the oldest entry gone.
+        assertTrue(cache.toString(), cache.toString().contains("diskEntries=1500"));
+        long compacted = logFile.length();
+
+        // The next puts append instead of compacting again.
+        for (int i = 0; i < 100; i++) {
+            long before = logFile.length();
+            cache.put("en", "es", "more " + i, "más " + i);
+            assertTrue(logFile.length() > before);
+        }
+        assertTrue(logFile.length() > compacted);
+
+        cache.close();
+        cache = new TranslationCache(logFile);
+        assertNull(cache.get("en", "es", "oldest"));
+        assertEquals("más 99", cache.get("en", "es", "more 99"));
+    }
+
+    @Test
+    public void deadDataIsCompactedAway() {
+        cache = new TranslationCache(logFile);
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 4096; i++) value.append('x');
+        for (int i = 0; i < 100; i++) cache.put("en", "es", "same text", value.toString() + i);
+
+        // 100 versions of a 4 KB entry would be 400 KB; compaction keeps only the live one.
+        assertTrue("log is " + logFile.length() + " bytes", logFile.length() < 256 * 1024);
+        assertEquals(value.toString() + 99, cache.get("en", "es", "same text"));
+    }
+
+    @Test
+    public void trimMemoryFallsBackToDisk() {
+        cache = new TranslationCache(logFile);
+        cache.put("en", "es", "house", "casa");
+        cache.trimMemory();
+
+        assertEquals("casa", cache.get("en", "es", "house"));
+        assertTrue(cache.toString(), cache.toString().contains("diskHits=1"));
+    }
+
+    // Appends a record in the log format, with a chosen timestamp.
+    private void writeRecord(long timestamp, String key, String value) throws IOException {
+        RandomAccessFile log = new RandomAccessFile(logFile, "rw");
+        try {
+            log.seek(log.length());
+            byte[] bytes = value.getBytes(UTF_8);
+            log.writeLong(timestamp);
+            log.writeUTF(key);
+            log.writeInt(bytes.length);
+            log.write(bytes);
+        } finally {
+            log.close();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.app.bubble;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class TranslationSchedulerTest {
+
+    private final ShadowLooper mainLooper = shadowOf(Looper.getMainLooper());
+    private final List<String> sent = Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> delivered = new ArrayList<>();
+    private int failures = 0;
+
+    private File logFile;
+    private TranslationCache cache;
+    private BatchTranslator batchTranslator;
+
+    @Before
+    public void setUp() throws IOException {
+        logFile = File.createTempFile("scheduler", ".log");
+        logFile.delete();
+        cache = new TranslationCache(logFile);
+        final StubTranslationProvider stub = new StubTranslationProvider(0, 0, 0f, 1);
+        batchTranslator = new BatchTranslator(new TranslationProvider() {
+            @Override
+            public String translate(String fromLang, String toLang, String text, CancellationToken cancellation) {
+                sent.add(text);
+                return stub.translate(fromLang, toLang, text, cancellation);
+            }
+
+            @Override
+            public String name() {
+                return "recording";
+            }
+        }, BatchTranslator.DEFAULT_CHUNK_BYTES);
+    }
+
+    @After
+    public void tearDown() {
+        batchTranslator.shutdown();
+        cache.close();
+        logFile.delete();
+        new File(logFile.getPath() + ".tmp").delete();
+    }
+
+    @Test
+    public void resultIsDeliveredOnTheMainThread() {
+        TranslationScheduler scheduler = scheduler(new SegmentTranslator(cache, batchTranslator));
+
+        scheduler.request("en", "es", "hello", false);
+        assertTrue(delivered.isEmpty());
+        mainLooper.idle();
+
+        assertEquals(Arrays.asList("[es] hello"), delivered);
+    }
+
+    @Test
+    public void supersededResultIsDropped() {
+        TranslationScheduler scheduler = scheduler(new SegmentTranslator(cache, batchTranslator));
+
+        // Both finish before the main thread runs; only the newer one may reach it.
+        scheduler.request("en", "es", "first", false);
+        scheduler.request("en", "es", "second", false);
+        mainLooper.idle();
+
+        assertEquals(Arrays.asList("[es] second"), delivered);
+    }
+
+    @Test
+    public void debouncedRequestsCollapseIntoTheLast() {
+        TranslationScheduler scheduler = scheduler(new SegmentTranslator(cache, batchTranslator));
+
+        scheduler.request("en", "es", "one", true);
+        mainLooper.idleFor(TranslationScheduler.DEBOUNCE_MS - 1, TimeUnit.MILLISECONDS);
+        scheduler.request("en", "es", "two", true);
+        mainLooper.idleFor(TranslationScheduler.DEBOUNCE_MS - 1, TimeUnit.MILLISECONDS);
+        assertTrue(sent.isEmpty());
+
+        mainLooper.idleFor(1, TimeUnit.MILLISECONDS);
+
+        assertEquals(Arrays.asList("two"), sent);
+        assertEquals(Arrays.asList("[es] two"), delivered);
+    }
+
+    @Test
+    public void immediateRequestReplacesAPendingDebouncedOne() {
+        TranslationScheduler scheduler = scheduler(new SegmentTranslator(cache, batchTranslator));
+
+        scheduler.request("en", "es", "spinner", true);
+        scheduler.request("en", "es", "capture", false);
+        mainLooper.idleFor(2 * TranslationScheduler.DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+
+        assertEquals(Arrays.asList("capture"), sent);
+        assertEquals(Arrays.asList("[es] capture"), delivered);
+    }
+
+    @Test
+    public void cancelledRequestDeliversNothing() {
+        TranslationScheduler scheduler = scheduler(new SegmentTranslator(cache, batchTranslator));
+
+        scheduler.request("en", "es", "hello", false);
+        scheduler.cancel();
+        mainLooper.idle();
+
+        assertTrue(delivered.isEmpty());
+        assertEquals(0, failures);
+    }
+
+    @Test
+    public void failedTranslationIsReported() {
+        batchTranslator.setProvider(new StubTranslationProvider(0, 0, 1f, 1));
+        TranslationScheduler scheduler = scheduler(new SegmentTranslator(cache, batchTranslator));
+
+        scheduler.request("en", "es", "hello", false);
+        mainLooper.idle();
+
+        assertEquals(1, failures);
+        assertTrue(delivered.isEmpty());
+    }
+
+    @Test
+    public void translatorExceptionIsReportedAsFailure() {
+        TranslationScheduler scheduler = scheduler(new SegmentTranslator(cache, batchTranslator) {
+            @Override
+            public String translate(String sourceLang, String targetLang, String text, CancellationToken cancellation) {
+                throw new IllegalStateException("broken");
+            }
+        });
+
+        scheduler.request("en", "es", "hello", false);
+        mainLooper.idle();
+
+        assertEquals(1, failures);
+    }
+
+    private TranslationScheduler scheduler(SegmentTranslator translator) {
+        return new TranslationScheduler(new Handler(Looper.getMainLooper()), new DirectExecutorService(), translator,
+                new TranslationScheduler.Listener() {
+                    @Override
+                    public void onTranslated(String translation) {
+                        delivered.add(translation);
+                    }
+
+                    @Override
+                    public void onFailed() {
+                        failures++;
+                    }
+                });
+    }
+
+    // Runs every task on the calling thread, so translations finish before request() returns and
+    // only the main looper decides what is delivered when.
+    private static final class DirectExecutorService extends AbstractExecutorService {
+        private boolean shutdown = false;
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}